@@ -1,19 +1,64 @@
-import java.time.LocalDate;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 
 /**
  * Tổng hợp các báo cáo/ thống kê nâng cao dựa trên dữ liệu điện thoại và hóa đơn.
  */
 public class AnalyticsService {
+    /** Thuộc tính hệ thống chọn số luồng chạy báo cáo, vd. -Danalytics.parallelism=8 (1 là tuần tự). */
+    public static final String PARALLELISM_PROPERTY = "analytics.parallelism";
+    /** Thuộc tính hệ thống chọn số dòng tối thiểu để chạy báo cáo song song. */
+    public static final String PARALLEL_THRESHOLD_PROPERTY = "analytics.parallelThreshold";
+
     private final PhoneManager phoneManager;
     private final InvoiceManager invoiceManager;
+    private final int parallelism;
+    private final int parallelThreshold;
+    // Chỉ tạo khi một lượt quét đầu tiên thực sự chạy song song (đủ ngưỡng)
+    private ForkJoinPool pool;
 
+    /**
+     * Tạo service với chế độ song song đọc từ thuộc tính hệ thống {@code analytics.parallelism}
+     * (mặc định số nhân CPU) và {@code analytics.parallelThreshold}
+     * (mặc định {@link LinkedStore#PARALLEL_THRESHOLD}).
+     */
     public AnalyticsService(PhoneManager phoneManager, InvoiceManager invoiceManager) {
+        this(phoneManager, invoiceManager,
+                Integer.getInteger(PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger(PARALLEL_THRESHOLD_PROPERTY, LinkedStore.PARALLEL_THRESHOLD));
+    }
+
+    /**
+     * @param phoneManager      nguồn dữ liệu điện thoại.
+     * @param invoiceManager    nguồn dữ liệu hóa đơn.
+     * @param parallelism       số luồng ForkJoinPool dùng cho báo cáo (1 để luôn chạy tuần tự).
+     * @param parallelThreshold số dòng tối thiểu của một lượt quét để chạy song song.
+     * @throws IllegalArgumentException nếu parallelism nhỏ hơn 1 hoặc ngưỡng âm.
+     */
+    public AnalyticsService(PhoneManager phoneManager, InvoiceManager invoiceManager,
+                            int parallelism, int parallelThreshold) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        if (parallelThreshold < 0) {
+            throw new IllegalArgumentException("Negative parallel threshold: " + parallelThreshold);
+        }
         this.phoneManager = phoneManager;
         this.invoiceManager = invoiceManager;
+        this.parallelism = parallelism;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Tạo lô báo cáo mới để lấy nhiều báo cáo trong một lượt quét dữ liệu
+     * (các hàm báo cáo riêng lẻ bên dưới là lô chỉ gồm một báo cáo). Lượt quét chạy song song
+     * trên pool của service khi số dòng từ ngưỡng song song trở lên.
+     *
+     * @return lô báo cáo rỗng.
+     */
+    public ReportBatch newReportBatch() {
+        return new ReportBatch(phoneManager, invoiceManager, parallelism > 1 ? this::pool : null, parallelThreshold);
     }
 
     /**
@@ -22,14 +67,7 @@ public class AnalyticsService {
      * @return Map thương hiệu -> doanh thu.
      */
     public Map<String, Double> revenueByBrand() {
-        Map<String, Phone> phoneIndex = buildPhoneIndex();
-        Map<String, Double> result = new HashMap<>();
-        for (Invoice invoice : invoiceManager.getAll()) {
-            Phone phone = phoneIndex.getOrDefault(invoice.getPhoneId(), dummyPhone());
-            String brand = phone.getBrand();
-            result.merge(brand, invoice.getNetTotal(), Double::sum);
-        }
-        return result;
+        return runSingle(ReportBatch::revenueByBrand);
     }
 
     /**
@@ -38,14 +76,7 @@ public class AnalyticsService {
      * @return Map thương hiệu -> tổng số lượng.
      */
     public Map<String, Integer> quantitySoldByBrand() {
-        Map<String, Phone> phoneIndex = buildPhoneIndex();
-        Map<String, Integer> result = new HashMap<>();
-        List<Invoice> invoices = invoiceManager.getAll();
-        for (Invoice invoice : invoices) {
-            String brand = phoneIndex.getOrDefault(invoice.getPhoneId(), dummyPhone()).getBrand();
-            result.merge(brand, invoice.getQuantity(), Integer::sum);
-        }
-        return result;
+        return runSingle(ReportBatch::quantitySoldByBrand);
     }
 
     /**
@@ -55,15 +86,7 @@ public class AnalyticsService {
      * @return Map tháng -> doanh thu trong năm đó.
      */
     public Map<Integer, Double> revenueByMonth(int year) {
-        Map<Integer, Double> result = new HashMap<>();
-        for (Invoice invoice : invoiceManager.getAll()) {
-            if (invoice.getSaleDate().getYear() != year) {
-                continue;
-            }
-            int month = invoice.getSaleDate().getMonthValue();
-            result.merge(month, invoice.getNetTotal(), Double::sum);
-        }
-        return result;
+        return runSingle(batch -> batch.revenueByMonth(year));
     }
 
     /**
@@ -73,13 +96,7 @@ public class AnalyticsService {
      * @return Map nhân viên -> số hóa đơn đạt yêu cầu.
      */
     public Map<String, Long> invoicesBySalespersonWithMinRevenue(double minRevenue) {
-        Map<String, Long> summary = new HashMap<>();
-        for (Invoice invoice : invoiceManager.getAll()) {
-            if (invoice.getNetTotal() >= minRevenue) {
-                summary.merge(invoice.getSalesperson(), 1L, Long::sum);
-            }
-        }
-        return summary;
+        return runSingle(batch -> batch.invoicesBySalespersonWithMinRevenue(minRevenue));
     }
 
     /**
@@ -89,13 +106,7 @@ public class AnalyticsService {
      * @return Map thương hiệu -> số mẫu đạt điều kiện.
      */
     public Map<String, Long> phonesByBrandWithStockGreaterThan(int minStock) {
-        Map<String, Long> summary = new HashMap<>();
-        for (Phone phone : phoneManager.getAll()) {
-            if (phone.getStock() >= minStock) {
-                summary.merge(phone.getBrand(), 1L, Long::sum);
-            }
-        }
-        return summary;
+        return runSingle(batch -> batch.phonesByBrandWithStockGreaterThan(minStock));
     }
 
     /**
@@ -105,13 +116,7 @@ public class AnalyticsService {
      * @return Map thương hiệu -> số mẫu đạt điều kiện.
      */
     public Map<String, Long> phonesByBrandWithPriceGreaterThan(double price) {
-        Map<String, Long> summary = new HashMap<>();
-        for (Phone phone : phoneManager.getAll()) {
-            if (phone.getPrice() >= price) {
-                summary.merge(phone.getBrand(), 1L, Long::sum);
-            }
-        }
-        return summary;
+        return runSingle(batch -> batch.phonesByBrandWithPriceGreaterThan(price));
     }
 
     /**
@@ -120,19 +125,7 @@ public class AnalyticsService {
      * @return Map nhân viên -> tỷ lệ chiết khấu trung bình.
      */
     public Map<String, Double> averageDiscountBySalesperson() {
-        Map<String, double[]> aggregates = new HashMap<>();
-        for (Invoice invoice : invoiceManager.getAll()) {
-            double[] stats = aggregates.computeIfAbsent(invoice.getSalesperson(), key -> new double[2]);
-            stats[0] += invoice.getDiscountRate();
-            stats[1] += 1;
-        }
-        Map<String, Double> averages = new HashMap<>();
-        for (Map.Entry<String, double[]> entry : aggregates.entrySet()) {
-            double[] stats = entry.getValue();
-            double average = stats[1] == 0 ? 0 : stats[0] / stats[1];
-            averages.put(entry.getKey(), average);
-        }
-        return averages;
+        return runSingle(ReportBatch::averageDiscountBySalesperson);
     }
 
     /**
@@ -142,35 +135,20 @@ public class AnalyticsService {
      * @return số hóa đơn phù hợp.
      */
     public long countInvoicesByCustomerKeyword(String keyword) {
-        String normalized = keyword.toLowerCase(Locale.ROOT);
-        long count = 0;
-        for (Invoice invoice : invoiceManager.getAll()) {
-            if (invoice.getCustomerName().toLowerCase(Locale.ROOT).contains(normalized)) {
-                count++;
-            }
-        }
-        return count;
+        return invoiceManager.countByCustomerName(keyword);
     }
 
-    /**
-     * Tạo map tra cứu nhanh phoneId -> Phone.
-     *
-     * @return Map mã -> đối tượng phone.
-     */
-    private Map<String, Phone> buildPhoneIndex() {
-        Map<String, Phone> index = new HashMap<>();
-        for (Phone phone : phoneManager.getAll()) {
-            index.putIfAbsent(phone.getId(), phone);
+    private synchronized ForkJoinPool pool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism);
         }
-        return index;
+        return pool;
     }
 
-    /**
-     * Trả về đối tượng "Unknown" phòng trường hợp dữ liệu sai.
-     *
-     * @return Phone giả.
-     */
-    private Phone dummyPhone() {
-        return new Phone("UNKNOWN", "Unknown", "Khác", 0, 0, 0, LocalDate.now().getYear());
+    private <R> R runSingle(Function<ReportBatch, ReportBatch.Result<R>> report) {
+        ReportBatch batch = newReportBatch();
+        ReportBatch.Result<R> result = report.apply(batch);
+        batch.run();
+        return result.get();
     }
 }
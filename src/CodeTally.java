@@ -0,0 +1,131 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bộ cộng dồn theo mã của {@link StringDictionary}: đếm và cộng tổng vào mảng chỉ số bằng mã
+ * thay cho {@code HashMap.merge} trên từng dòng. Mảng tự nới khi gặp mã được cấp sau lúc tạo.
+ * Dùng được làm bộ chứa cho {@code Stream.collect} (mỗi luồng một bộ, trộn bằng {@link #merge}).
+ */
+public class CodeTally {
+    private long[] counts;
+    private double[] sums;
+
+    /**
+     * @param dictionary từ điển cung cấp mã, dùng để ước lượng kích thước ban đầu.
+     */
+    public CodeTally(StringDictionary dictionary) {
+        int capacity = Math.max(1, dictionary.size());
+        this.counts = new long[capacity];
+        this.sums = new double[capacity];
+    }
+
+    /**
+     * @param capacity số mã dự kiến (mã từ 0 tới capacity - 1), dùng cho khóa số nhỏ như tháng.
+     */
+    public CodeTally(int capacity) {
+        this.counts = new long[Math.max(1, capacity)];
+        this.sums = new double[Math.max(1, capacity)];
+    }
+
+    /**
+     * Đếm thêm một dòng có mã cho trước.
+     *
+     * @param code mã của dòng.
+     */
+    public void add(int code) {
+        add(code, 0);
+    }
+
+    /**
+     * Đếm thêm một dòng và cộng giá trị vào tổng của mã đó.
+     *
+     * @param code  mã của dòng.
+     * @param value giá trị cần cộng.
+     */
+    public void add(int code, double value) {
+        if (code >= counts.length) {
+            int capacity = Math.max(code + 1, counts.length * 2);
+            counts = Arrays.copyOf(counts, capacity);
+            sums = Arrays.copyOf(sums, capacity);
+        }
+        counts[code]++;
+        sums[code] += value;
+    }
+
+    /**
+     * Cộng kết quả của bộ khác vào bộ này.
+     *
+     * @param other bộ cần trộn.
+     */
+    public void merge(CodeTally other) {
+        for (int code = 0; code < other.counts.length; code++) {
+            if (other.counts[code] > 0) {
+                if (code >= counts.length) {
+                    counts = Arrays.copyOf(counts, other.counts.length);
+                    sums = Arrays.copyOf(sums, other.counts.length);
+                }
+                counts[code] += other.counts[code];
+                sums[code] += other.sums[code];
+            }
+        }
+    }
+
+    /**
+     * @param code mã cần đọc.
+     * @return số dòng đã đếm cho mã (0 nếu chưa gặp).
+     */
+    public long count(int code) {
+        return code < counts.length ? counts[code] : 0;
+    }
+
+    /**
+     * @param code mã cần đọc.
+     * @return tổng đã cộng cho mã (0 nếu chưa gặp).
+     */
+    public double sum(int code) {
+        return code < sums.length ? sums[code] : 0;
+    }
+
+    /**
+     * @param dictionary từ điển đã cấp mã.
+     * @return Map giá trị -> số dòng theo thứ tự mã (chỉ gồm các mã đã gặp).
+     */
+    public Map<String, Long> counts(StringDictionary dictionary) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                result.put(dictionary.decode(code), counts[code]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param dictionary từ điển đã cấp mã.
+     * @return Map giá trị -> tổng theo thứ tự mã (chỉ gồm các mã đã gặp).
+     */
+    public Map<String, Double> sums(StringDictionary dictionary) {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                result.put(dictionary.decode(code), sums[code]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param dictionary từ điển đã cấp mã.
+     * @return Map giá trị -> trung bình (tổng / số dòng) theo thứ tự mã.
+     */
+    public Map<String, Double> averages(StringDictionary dictionary) {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                result.put(dictionary.decode(code), sums[code] / counts[code]);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,455 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Danh sách liên kết đơn an toàn đa luồng, không dùng khoá, cho nhiều quầy bán cùng ghi.
+ * <ul>
+ *     <li>Thêm cuối: CAS trên con trỏ next của nút cuối, tail được đẩy theo kiểu Michael-Scott.</li>
+ *     <li>Xoá: kiểu Harris - đánh dấu (mark) con trỏ next của nút là xoá logic, sau đó các
+ *     lượt duyệt gỡ nút khỏi chuỗi bằng CAS trên nút đứng trước.</li>
+ *     <li>Iterator nhất quán yếu: không ném ConcurrentModificationException, có thể thấy
+ *     hoặc không thấy các thay đổi xảy ra trong lúc duyệt.</li>
+ * </ul>
+ * Nút cuối đã bị đánh dấu vẫn được giữ trong chuỗi cho tới khi có nút mới nối sau nó,
+ * nhờ vậy thao tác thêm cuối không bao giờ bị mất. Chỉ mục khóa dùng ConcurrentHashMap
+ * khóa -> nút. {@link #clear()} và {@link #sort(Comparator)} không chạy đồng thời với ghi.
+ */
+public class ConcurrentSinglyLinkedList<T> implements LinkedStore<T> {
+
+    /**
+     * Nút có con trỏ next kèm bit đánh dấu xoá logic.
+     */
+    private static final class Node<T> {
+        private volatile T data;
+        private final AtomicMarkableReference<Node<T>> next = new AtomicMarkableReference<>(null, false);
+
+        private Node(T data) {
+            this.data = data;
+        }
+
+        private boolean isDeleted() {
+            return next.isMarked();
+        }
+
+        /**
+         * Đánh dấu xoá logic.
+         *
+         * @return true nếu chính lời gọi này đánh dấu được (chưa ai xoá trước).
+         */
+        private boolean markDeleted() {
+            while (true) {
+                boolean[] mark = new boolean[1];
+                Node<T> succ = next.get(mark);
+                if (mark[0]) {
+                    return false;
+                }
+                if (next.compareAndSet(succ, succ, false, true)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    // Nút lính canh đứng trước phần tử đầu tiên
+    private final Node<T> head = new Node<>(null);
+    private final AtomicReference<Node<T>> tail = new AtomicReference<>(head);
+    private final AtomicInteger size = new AtomicInteger();
+    // Hàm lấy khóa chính của phần tử, null nếu không đánh chỉ mục
+    private final Function<T, String> keyExtractor;
+    // Khóa (chữ thường) -> nút chứa phần tử
+    private final ConcurrentHashMap<String, Node<T>> index;
+
+    /**
+     * Tạo danh sách không có chỉ mục khóa.
+     */
+    public ConcurrentSinglyLinkedList() {
+        this(null);
+    }
+
+    /**
+     * @param keyExtractor hàm lấy khóa từ phần tử, null nếu không cần chỉ mục.
+     */
+    public ConcurrentSinglyLinkedList(Function<T, String> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+        this.index = keyExtractor == null ? null : new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @param data phần tử cần thêm.
+     * @throws IllegalArgumentException nếu khóa của phần tử đã tồn tại.
+     */
+    @Override
+    public void addLast(T data) {
+        if (!addIfAbsent(data)) {
+            throw new IllegalArgumentException("Duplicate key: " + keyExtractor.apply(data));
+        }
+    }
+
+    /**
+     * Thêm cuối nếu khóa chưa tồn tại; kiểm tra và giữ chỗ khóa là một bước nguyên tử.
+     *
+     * @param data phần tử cần thêm.
+     * @return false nếu khóa đã có.
+     */
+    @Override
+    public boolean addIfAbsent(T data) {
+        Node<T> node = new Node<>(data);
+        if (index != null && !claimKey(keyOf(data), node)) {
+            return false;
+        }
+        linkLast(node);
+        return true;
+    }
+
+    @Override
+    public void appendRaw(T data) {
+        addLast(data);
+    }
+
+    @Override
+    public void bulkAdd(Collection<T> items) {
+        appendAll(items);
+    }
+
+    /**
+     * Kiểm tra khóa của cả lô trước rồi nối từng phần tử. Lô chỉ "trọn vẹn hoặc không gì cả"
+     * khi không có luồng khác thêm cùng khóa trong lúc đang nối.
+     *
+     * @param items các phần tử cần nối.
+     * @throws IllegalArgumentException nếu có khóa trùng.
+     */
+    @Override
+    public void appendAll(Collection<? extends T> items) {
+        if (index != null) {
+            Set<String> seen = new HashSet<>(items.size() * 2);
+            for (T item : items) {
+                String key = keyOf(item);
+                if (liveNodeOf(key) != null || !seen.add(key)) {
+                    throw new IllegalArgumentException("Duplicate key: " + keyExtractor.apply(item));
+                }
+            }
+        }
+        for (T item : items) {
+            addLast(item);
+        }
+    }
+
+    @Override
+    public boolean removeIf(Predicate<T> predicate) {
+        boolean removed = false;
+        for (Node<T> cur = nextLive(head); cur != null; cur = nextLive(cur)) {
+            if (predicate.test(cur.data) && delete(cur)) {
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public Optional<T> findFirst(Predicate<T> predicate) {
+        for (T item : this) {
+            if (predicate.test(item)) {
+                return Optional.of(item);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Cập nhật từng nút phù hợp; hai luồng cùng cập nhật một nút thì lần ghi sau thắng.
+     */
+    @Override
+    public boolean update(Predicate<T> predicate, Function<T, T> updater) {
+        boolean updated = false;
+        for (Node<T> cur = nextLive(head); cur != null; cur = nextLive(cur)) {
+            if (predicate.test(cur.data)) {
+                setData(cur, updater.apply(cur.data));
+                updated = true;
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Chép ra mảng, sắp xếp ổn định rồi nối lại từ đầu, chỉ mục khóa được dựng lại theo các nút
+     * mới. Giống {@link #clear()}, không gọi đồng thời với các luồng đang ghi.
+     */
+    @Override
+    public void sort(Comparator<T> comparator) {
+        List<T> items = toList();
+        items.sort(comparator);
+        clear();
+        for (T item : items) {
+            addLast(item);
+        }
+    }
+
+    @Override
+    public List<T> toList() {
+        List<T> list = new ArrayList<>(size());
+        for (T item : this) {
+            list.add(item);
+        }
+        return list;
+    }
+
+    /**
+     * Xoá toàn bộ (dùng khi nạp lại dữ liệu); không gọi đồng thời với các luồng đang ghi.
+     */
+    @Override
+    public void clear() {
+        head.next.set(null, false);
+        tail.set(head);
+        size.set(0);
+        if (index != null) {
+            index.clear();
+        }
+    }
+
+    @Override
+    public boolean replaceFirst(Predicate<T> predicate, T newValue) {
+        for (Node<T> cur = nextLive(head); cur != null; cur = nextLive(cur)) {
+            if (predicate.test(cur.data)) {
+                setData(cur, newValue);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean removeFirst(Predicate<T> predicate) {
+        return removeFirstAndReturn(predicate) != null;
+    }
+
+    @Override
+    public T removeFirstAndReturn(Predicate<T> predicate) {
+        for (Node<T> cur = nextLive(head); cur != null; cur = nextLive(cur)) {
+            T data = cur.data;
+            if (predicate.test(data) && delete(cur)) {
+                return data;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return liveNodeOf(key) != null;
+    }
+
+    @Override
+    public Optional<T> findByKey(String key) {
+        Node<T> node = liveNodeOf(key);
+        return node == null ? Optional.empty() : Optional.of(node.data);
+    }
+
+    @Override
+    public boolean replaceByKey(String key, T newValue) {
+        Node<T> node = liveNodeOf(key);
+        if (node == null) {
+            return false;
+        }
+        setData(node, newValue);
+        return true;
+    }
+
+    /**
+     * Xoá logic theo khóa trong O(1); nút được gỡ khỏi chuỗi ở lượt duyệt sau.
+     */
+    @Override
+    public T removeByKey(String key) {
+        Node<T> node = liveNodeOf(key);
+        if (node == null) {
+            return null;
+        }
+        T data = node.data;
+        return delete(node) ? data : null;
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Kích thước thay đổi trong lúc các luồng khác đang ghi, nên spliterator không báo SIZED
+     * (nơi dùng không được tin vào một kích thước có thể đã sai).
+     *
+     * @return spliterator ORDERED | CONCURRENT | NONNULL, kích thước không xác định.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.ORDERED | Spliterator.CONCURRENT | Spliterator.NONNULL);
+    }
+
+    /**
+     * @return iterator nhất quán yếu, bỏ qua nút đã xoá logic và giúp gỡ chúng.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private Node<T> nextNode = nextLive(head);
+
+            @Override
+            public boolean hasNext() {
+                return nextNode != null;
+            }
+
+            @Override
+            public T next() {
+                if (nextNode == null) {
+                    throw new NoSuchElementException();
+                }
+                T data = nextNode.data;
+                nextNode = nextLive(nextNode);
+                return data;
+            }
+        };
+    }
+
+    /**
+     * Nối nút vào cuối chuỗi. Nút cuối bị đánh dấu vẫn nhận nút mới (giữ nguyên bit đánh dấu),
+     * vì nút cuối không bao giờ bị gỡ khi chưa có nút kế tiếp.
+     *
+     * @param node nút cần nối.
+     */
+    private void linkLast(Node<T> node) {
+        while (true) {
+            Node<T> last = tail.get();
+            boolean[] mark = new boolean[1];
+            Node<T> succ = last.next.get(mark);
+            if (succ != null) {
+                tail.compareAndSet(last, succ);
+                continue;
+            }
+            if (last.next.compareAndSet(null, node, mark[0], mark[0])) {
+                tail.compareAndSet(last, node);
+                size.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Tìm nút sống đầu tiên sau pred, đồng thời gỡ các nút đã đánh dấu gặp trên đường.
+     * Chỉ gỡ nút đã có nút kế tiếp: khi đó next của nó bị "đóng băng" nên CAS an toàn.
+     *
+     * @param pred nút bắt đầu (không tính chính nó).
+     * @return nút sống kế tiếp hoặc null.
+     */
+    private Node<T> nextLive(Node<T> pred) {
+        Node<T> cur = pred.next.getReference();
+        while (cur != null) {
+            boolean[] mark = new boolean[1];
+            Node<T> succ = cur.next.get(mark);
+            if (!mark[0]) {
+                return cur;
+            }
+            if (succ != null) {
+                pred.next.compareAndSet(cur, succ, false, false);
+            }
+            cur = succ;
+        }
+        return null;
+    }
+
+    /**
+     * Xoá logic một nút và cập nhật chỉ mục, kích thước.
+     *
+     * @return true nếu lời gọi này là lần xoá thành công.
+     */
+    private boolean delete(Node<T> node) {
+        if (!node.markDeleted()) {
+            return false;
+        }
+        size.decrementAndGet();
+        if (index != null) {
+            index.remove(keyOf(node.data), node);
+        }
+        return true;
+    }
+
+    /**
+     * Ghi dữ liệu mới; nếu khóa đổi thì giữ chỗ khóa mới trước rồi mới nhả khóa cũ.
+     * Nếu nút bị xoá đồng thời thì lần xoá có thể đã gỡ khóa cũ trước khi khóa mới được giữ chỗ,
+     * nên sau khi ghi phải kiểm tra lại và tự gỡ khóa mới, tránh để khóa trỏ mãi vào nút chết.
+     */
+    private void setData(Node<T> node, T newValue) {
+        if (index != null) {
+            String oldKey = keyOf(node.data);
+            String newKey = keyOf(newValue);
+            if (!oldKey.equals(newKey)) {
+                if (!claimKey(newKey, node)) {
+                    throw new IllegalArgumentException("Duplicate key: " + keyExtractor.apply(newValue));
+                }
+                node.data = newValue;
+                index.remove(oldKey, node);
+                if (node.isDeleted()) {
+                    index.remove(newKey, node);
+                }
+                return;
+            }
+        }
+        node.data = newValue;
+    }
+
+    /**
+     * Giữ chỗ khóa cho nút. Khóa đang trỏ vào nút đã xoá logic (lần xoá chưa kịp gỡ) được coi
+     * là trống và bị thay thế.
+     *
+     * @return false nếu khóa đang thuộc về một nút còn sống.
+     */
+    private boolean claimKey(String key, Node<T> node) {
+        while (true) {
+            Node<T> existing = index.putIfAbsent(key, node);
+            if (existing == null) {
+                return true;
+            }
+            if (!existing.isDeleted()) {
+                return false;
+            }
+            if (index.replace(key, existing, node)) {
+                return true;
+            }
+        }
+    }
+
+    private Node<T> liveNodeOf(String key) {
+        if (index == null) {
+            throw new IllegalStateException("List was created without a key extractor");
+        }
+        Node<T> node = index.get(normalize(key));
+        return node == null || node.isDeleted() ? null : node;
+    }
+
+    private String keyOf(T data) {
+        return normalize(keyExtractor.apply(data));
+    }
+
+    private static String normalize(String key) {
+        return key.toLowerCase(Locale.ROOT);
+    }
+}
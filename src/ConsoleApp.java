@@ -1,7 +1,10 @@
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDate;
-import java.util.List;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Scanner;
@@ -10,6 +13,9 @@ import java.util.Scanner;
  * Lớp chịu trách nhiệm hiển thị menu console và điều hướng đến các chức năng.
  */
 public class ConsoleApp {
+    // Số dòng hiển thị cho các lựa chọn xếp hạng (một màn hình)
+    private static final int PAGE_SIZE = 20;
+
     private final Scanner scanner = new Scanner(System.in);
     private final PhoneManager phoneManager = new PhoneManager();
     private final InvoiceManager invoiceManager = new InvoiceManager();
@@ -21,6 +27,14 @@ public class ConsoleApp {
     private final Path invoiceFile = Path.of("data", "invoices.csv");
     private final Path customerFile = Path.of("data", "customers.csv");
     private final Path employeeFile = Path.of("data", "employees.csv");
+    // Snapshot nhị phân ghi kèm CSV, nạp nhanh hơn khi không cũ hơn file CSV
+    private final Path phoneSnapshot = Path.of("data", "phones.bin");
+    private final Path invoiceSnapshot = Path.of("data", "invoices.bin");
+    private final Path customerSnapshot = Path.of("data", "customers.bin");
+    private final Path employeeSnapshot = Path.of("data", "employees.bin");
+    // Nhật ký thay đổi hóa đơn, phát lại lên checkpoint invoices.csv/.bin khi khởi động
+    private final Path invoiceJournalFile = Path.of("data", "invoices.journal");
+    private InvoiceJournal invoiceJournal;
 
     /**
      * Hàm khởi động chính: đọc dữ liệu, seed nếu trống và mở menu.
@@ -43,31 +57,188 @@ public class ConsoleApp {
     }
 
     /**
-     * Đọc dữ liệu từ file CSV (nếu có).
+     * Đọc dữ liệu từ file (nếu có), bốn loại cùng lúc; mỗi loại đọc từ snapshot nhị phân nếu
+     * snapshot không cũ hơn file CSV, ngược lại đọc CSV. File lỗi được báo riêng, các file còn
+     * lại vẫn được nạp.
      */
     private void loadFromFiles() {
+        Map<Path, FileService.FileTask> tasks = new LinkedHashMap<>();
+        if (isSnapshotCurrent(phoneFile, phoneSnapshot)) {
+            tasks.put(phoneSnapshot, () -> {
+                phoneManager.loadAll(sink -> fileService.loadPhoneSnapshot(phoneSnapshot, sink));
+                return phoneManager.getAll().size();
+            });
+        } else {
+            tasks.put(phoneFile, () -> {
+                phoneManager.loadAll(sink -> fileService.loadPhones(phoneFile, sink));
+                return phoneManager.getAll().size();
+            });
+        }
+        closeInvoiceJournal();
+        Path invoiceSource;
+        FileService.FileTask loadInvoices;
+        if (isSnapshotCurrent(invoiceFile, invoiceSnapshot)) {
+            invoiceSource = invoiceSnapshot;
+            loadInvoices = () -> {
+                invoiceManager.loadAll(sink -> fileService.loadInvoiceSnapshot(invoiceSnapshot, sink));
+                return invoiceManager.getAll().size();
+            };
+        } else {
+            invoiceSource = invoiceFile;
+            loadInvoices = () -> {
+                LoadStats[] stats = new LoadStats[1];
+                invoiceManager.loadAll(sink -> stats[0] = fileService.loadInvoicesParallel(
+                        invoiceFile, sink, Runtime.getRuntime().availableProcessors()));
+                if (stats[0].getRows() >= LinkedStore.PARALLEL_THRESHOLD) {
+                    System.out.println("Da nap hoa don: " + stats[0]);
+                }
+                return stats[0].getRows();
+            };
+        }
+        // Nhật ký chỉ được mở khi checkpoint nạp thành công, tránh phát lại lên dữ liệu thiếu
+        tasks.put(invoiceSource, () -> {
+            loadInvoices.run();
+            openInvoiceJournal();
+            return invoiceManager.getAll().size();
+        });
+        if (isSnapshotCurrent(customerFile, customerSnapshot)) {
+            tasks.put(customerSnapshot, () -> {
+                customerManager.loadAll(sink -> fileService.loadCustomerSnapshot(customerSnapshot, sink));
+                return customerManager.getAll().size();
+            });
+        } else {
+            tasks.put(customerFile, () -> {
+                customerManager.loadAll(sink -> fileService.loadCustomers(customerFile, sink));
+                return customerManager.getAll().size();
+            });
+        }
+        if (isSnapshotCurrent(employeeFile, employeeSnapshot)) {
+            tasks.put(employeeSnapshot, () -> {
+                employeeManager.loadAll(sink -> fileService.loadEmployeeSnapshot(employeeSnapshot, sink));
+                return employeeManager.getAll().size();
+            });
+        } else {
+            tasks.put(employeeFile, () -> {
+                employeeManager.loadAll(sink -> fileService.loadEmployees(employeeFile, sink));
+                return employeeManager.getAll().size();
+            });
+        }
+        for (FileResult result : fileService.runConcurrently(tasks)) {
+            if (!result.isSuccess()) {
+                System.out.println("Khong the doc file " + result.getPath().getFileName()
+                        + ": " + result.getError().getMessage());
+            }
+        }
+    }
+
+    /**
+     * Mở nhật ký hóa đơn, phát lại các thay đổi lên dữ liệu vừa nạp rồi ghi tiếp mọi thay đổi
+     * sau này vào nhật ký. Nhật ký đủ dài thì được compaction ngay.
+     */
+    private void openInvoiceJournal() throws IOException {
+        InvoiceJournal journal = InvoiceJournal.open(invoiceJournalFile, invoiceManager::applyJournalEntry);
+        if (journal.getDiscardedBytes() > 0) {
+            System.out.println("Nhat ky hoa don bi ghi do, bo qua " + journal.getDiscardedBytes() + " byte cuoi.");
+        }
+        if (journal.needsCompaction()) {
+            try {
+                journal.checkpoint(this::writeInvoiceCheckpoint);
+            } catch (IOException | RuntimeException e) {
+                journal.close();
+                throw e;
+            }
+        }
+        invoiceManager.attachJournal(journal);
+        invoiceJournal = journal;
+    }
+
+    /**
+     * Ngừng ghi nhật ký hóa đơn và đóng file (ghi nốt lô đang gom).
+     */
+    private void closeInvoiceJournal() {
+        if (invoiceJournal == null) {
+            return;
+        }
+        invoiceManager.attachJournal(null);
         try {
-            phoneManager.replaceAll(fileService.readPhones(phoneFile));
-            invoiceManager.replaceAll(fileService.readInvoices(invoiceFile));
-            customerManager.replaceAll(fileService.readCustomers(customerFile));
-            employeeManager.replaceAll(fileService.readEmployees(employeeFile));
+            invoiceJournal.close();
         } catch (IOException e) {
-            System.out.println("Khong the doc file du lieu: " + e.getMessage());
+            System.out.println("Khong the ghi file " + invoiceJournalFile.getFileName() + ": " + e.getMessage());
         }
+        invoiceJournal = null;
     }
 
     /**
-     * Ghi dữ liệu hiện tại xuống file CSV.
+     * Ghi toàn bộ hóa đơn ra checkpoint (CSV rồi snapshot).
+     *
+     * @return số hóa đơn đã ghi.
      */
-    private void saveToFiles() {
+    private long writeInvoiceCheckpoint() throws IOException {
+        Collection<Invoice> invoices = invoiceManager.getAll();
+        fileService.writeInvoices(invoiceFile, invoices);
+        fileService.writeInvoiceSnapshot(invoiceSnapshot, invoices);
+        return invoices.size();
+    }
+
+    /**
+     * Snapshot được dùng khi tồn tại và không cũ hơn file CSV (CSV có thể đã được sửa tay).
+     */
+    private static boolean isSnapshotCurrent(Path csv, Path snapshot) {
         try {
-            fileService.writePhones(phoneFile, phoneManager.getAll());
-            fileService.writeInvoices(invoiceFile, invoiceManager.getAll());
-            fileService.writeCustomers(customerFile, customerManager.getAll());
-            fileService.writeEmployees(employeeFile, employeeManager.getAll());
-            System.out.println("Da luu du lieu vao thu muc data.");
+            return Files.exists(snapshot) && (Files.notExists(csv)
+                    || Files.getLastModifiedTime(snapshot).compareTo(Files.getLastModifiedTime(csv)) >= 0);
         } catch (IOException e) {
-            System.out.println("Khong the ghi file: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Ghi dữ liệu hiện tại xuống file CSV và snapshot nhị phân, bốn loại cùng lúc; file lỗi
+     * được báo riêng.
+     */
+    private void saveToFiles() {
+        Map<Path, FileService.FileTask> tasks = new LinkedHashMap<>();
+        // Snapshot ghi sau CSV trong cùng việc để không bao giờ cũ hơn CSV vừa ghi
+        tasks.put(phoneFile, () -> {
+            Collection<Phone> phones = phoneManager.getAll();
+            fileService.writePhones(phoneFile, phones);
+            fileService.writePhoneSnapshot(phoneSnapshot, phones);
+            return phones.size();
+        });
+        // Hóa đơn đã nằm trong nhật ký: chỉ ghi lại toàn bộ khi nhật ký cần compaction
+        InvoiceJournal journal = invoiceJournal;
+        if (journal == null) {
+            tasks.put(invoiceFile, this::writeInvoiceCheckpoint);
+        } else if (journal.needsCompaction()) {
+            tasks.put(invoiceFile, () -> journal.checkpoint(this::writeInvoiceCheckpoint));
+        } else {
+            tasks.put(invoiceJournalFile, () -> {
+                journal.commit();
+                return journal.getRecordCount();
+            });
+        }
+        tasks.put(customerFile, () -> {
+            Collection<Customer> customers = customerManager.getAll();
+            fileService.writeCustomers(customerFile, customers);
+            fileService.writeCustomerSnapshot(customerSnapshot, customers);
+            return customers.size();
+        });
+        tasks.put(employeeFile, () -> {
+            Collection<Employee> employees = employeeManager.getAll();
+            fileService.writeEmployees(employeeFile, employees);
+            fileService.writeEmployeeSnapshot(employeeSnapshot, employees);
+            return employees.size();
+        });
+        boolean allSaved = true;
+        for (FileResult result : fileService.runConcurrently(tasks)) {
+            if (!result.isSuccess()) {
+                allSaved = false;
+                System.out.println("Khong the ghi file " + result.getPath().getFileName()
+                        + ": " + result.getError().getMessage());
+            }
+        }
+        if (allSaved) {
+            System.out.println("Da luu du lieu vao thu muc data.");
         }
     }
 
@@ -100,6 +271,7 @@ public class ConsoleApp {
                 case 7 -> saveToFiles();
                 case 8 -> autoDemo();
                 case 0 -> {
+                    closeInvoiceJournal();
                     System.out.println("Tam biet!");
                     return;
                 }
@@ -123,7 +295,7 @@ public class ConsoleApp {
             System.out.println("5. Tim theo thuong hieu");
             System.out.println("6. Tim theo khoang gia");
             System.out.println("7. Sap xep theo gia tang");
-            System.out.println("8. Sap xep theo gia giam");
+            System.out.println("8. Sap xep theo gia giam (" + PAGE_SIZE + " dong dau)");
             System.out.println("9. Sap xep theo so luong ton giam dan");
             System.out.println("10. Sap xep theo nam ra mat moi nhat");
             System.out.println("11. Tim lon/ nho nhat");
@@ -132,7 +304,11 @@ public class ConsoleApp {
             int choice = readInt("Chon: ");
             switch (choice) {
                 case 1 -> printPhones(phoneManager.getAll());
-                case 2 -> phoneManager.addPhone(inputPhone());
+                case 2 -> {
+                    if (!phoneManager.addPhone(inputPhone())) {
+                        System.out.println("Ma da ton tai.");
+                    }
+                }
                 case 3 -> updatePhone();
                 case 4 -> deletePhone();
                 case 5 -> {
@@ -145,7 +321,8 @@ public class ConsoleApp {
                     printPhones(phoneManager.findByPriceRange(min, max));
                 }
                 case 7 -> printPhones(phoneManager.sortByPriceAsc());
-                case 8 -> printPhones(phoneManager.sortByPriceDesc());
+                case 8 -> printPhones(phoneManager.topK(
+                        Comparator.comparingDouble(Phone::getPrice).reversed(), PAGE_SIZE));
                 case 9 -> printPhones(phoneManager.sortByStockDesc());
                 case 10 -> printPhones(phoneManager.sortByReleaseYearDesc());
                 case 11 -> showPhoneExtremes();
@@ -175,7 +352,7 @@ public class ConsoleApp {
             System.out.println("7. Tim theo ma dien thoai");
             System.out.println("8. Sap xep ngay tang");
             System.out.println("9. Sap xep ngay giam");
-            System.out.println("10. Sap xep theo gia tri giam dan");
+            System.out.println("10. Sap xep theo gia tri giam dan (" + PAGE_SIZE + " dong dau)");
             System.out.println("11. Sap xep theo so luong giam dan");
             System.out.println("12. Tim lon/ nho nhat");
             System.out.println("13. Tong/Trung binh/ Dem");
@@ -183,7 +360,11 @@ public class ConsoleApp {
             int choice = readInt("Chon: ");
             switch (choice) {
                 case 1 -> printInvoices(invoiceManager.getAll());
-                case 2 -> invoiceManager.addInvoice(inputInvoice());
+                case 2 -> {
+                    if (!invoiceManager.addInvoice(inputInvoice())) {
+                        System.out.println("Ma da ton tai.");
+                    }
+                }
                 case 3 -> updateInvoice();
                 case 4 -> deleteInvoice();
                 case 5 -> {
@@ -201,7 +382,8 @@ public class ConsoleApp {
                 }
                 case 8 -> printInvoices(invoiceManager.sortByDateAsc());
                 case 9 -> printInvoices(invoiceManager.sortByDateDesc());
-                case 10 -> printInvoices(invoiceManager.sortByNetTotalDesc());
+                case 10 -> printInvoices(invoiceManager.topK(
+                        Comparator.comparingDouble(Invoice::getNetTotal).reversed(), PAGE_SIZE));
                 case 11 -> printInvoices(invoiceManager.sortByQuantityDesc());
                 case 12 -> showInvoiceExtremes();
                 case 13 -> showInvoiceAggregations();
@@ -227,7 +409,7 @@ public class ConsoleApp {
             System.out.println("6. Tim theo hang thanh vien");
             System.out.println("7. Sap xep ten A-Z");
             System.out.println("8. Sap xep ten Z-A");
-            System.out.println("9. Sap xep tong chi tieu giam dan");
+            System.out.println("9. Sap xep tong chi tieu giam dan (" + PAGE_SIZE + " dong dau)");
             System.out.println("10. Sap xep theo nam tham gia tang");
             System.out.println("11. Tim lon/ nho nhat (chi tieu, nam)");
             System.out.println("12. Tong/Trung binh/ Dem/ Thong ke");
@@ -235,7 +417,11 @@ public class ConsoleApp {
             int choice = readInt("Chon: ");
             switch (choice) {
                 case 1 -> printCustomers(customerManager.getAll());
-                case 2 -> customerManager.addCustomer(inputCustomer());
+                case 2 -> {
+                    if (!customerManager.addCustomer(inputCustomer())) {
+                        System.out.println("Ma da ton tai.");
+                    }
+                }
                 case 3 -> updateCustomer();
                 case 4 -> deleteCustomer();
                 case 5 -> {
@@ -248,7 +434,8 @@ public class ConsoleApp {
                 }
                 case 7 -> printCustomers(customerManager.sortByNameAsc());
                 case 8 -> printCustomers(customerManager.sortByNameDesc());
-                case 9 -> printCustomers(customerManager.sortByTotalSpentDesc());
+                case 9 -> printCustomers(customerManager.topK(
+                        Comparator.comparingDouble(Customer::getTotalSpent).reversed(), PAGE_SIZE));
                 case 10 -> printCustomers(customerManager.sortByJoinYearAsc());
                 case 11 -> showCustomerExtremes();
                 case 12 -> showCustomerAggregations();
@@ -275,14 +462,18 @@ public class ConsoleApp {
             System.out.println("7. Sap xep luong giam dan");
             System.out.println("8. Sap xep luong tang dan");
             System.out.println("9. Sap xep kinh nghiem giam dan");
-            System.out.println("10. Sap xep doanh so giam dan");
+            System.out.println("10. Sap xep doanh so giam dan (" + PAGE_SIZE + " dong dau)");
             System.out.println("11. Tim lon/ nho nhat (luong, kinh nghiem, doanh so)");
             System.out.println("12. Tong/Trung binh/ Dem/ Thong ke");
             System.out.println("0. Quay lai");
             int choice = readInt("Chon: ");
             switch (choice) {
                 case 1 -> printEmployees(employeeManager.getAll());
-                case 2 -> employeeManager.addEmployee(inputEmployee());
+                case 2 -> {
+                    if (!employeeManager.addEmployee(inputEmployee())) {
+                        System.out.println("Ma da ton tai.");
+                    }
+                }
                 case 3 -> updateEmployee();
                 case 4 -> deleteEmployee();
                 case 5 -> {
@@ -296,7 +487,8 @@ public class ConsoleApp {
                 case 7 -> printEmployees(employeeManager.sortBySalaryDesc());
                 case 8 -> printEmployees(employeeManager.sortBySalaryAsc());
                 case 9 -> printEmployees(employeeManager.sortByExperienceDesc());
-                case 10 -> printEmployees(employeeManager.sortBySalesDesc());
+                case 10 -> printEmployees(employeeManager.topK(
+                        Comparator.comparingDouble(Employee::getMonthlySales).reversed(), PAGE_SIZE));
                 case 11 -> showEmployeeExtremes();
                 case 12 -> showEmployeeAggregations();
                 case 0 -> {
@@ -322,6 +514,7 @@ public class ConsoleApp {
             System.out.println("6. Dien thoai cao cap (gia >= X) theo thuong hieu");
             System.out.println("7. Giam gia trung binh theo nhan vien");
             System.out.println("8. Dem hoa don theo tu khoa ten khach hang");
+            System.out.println("9. Bao cao cuoi ngay (1-4, 7 trong mot lan quet)");
             System.out.println("0. Quay lai");
             int choice = readInt("Chon: ");
             switch (choice) {
@@ -349,6 +542,7 @@ public class ConsoleApp {
                     long count = analyticsService.countInvoicesByCustomerKeyword(keyword);
                     System.out.println("So hoa don chua '" + keyword + "': " + count);
                 }
+                case 9 -> showEndOfDayReport();
                 case 0 -> {
                     return;
                 }
@@ -357,6 +551,26 @@ public class ConsoleApp {
         }
     }
 
+    /**
+     * In các báo cáo hóa đơn chính từ một lô báo cáo (một lượt quét thay cho năm lượt).
+     */
+    private void showEndOfDayReport() {
+        int year = readInt("Nhap nam: ");
+        double min = readDouble("Gia tri don hang toi thieu: ");
+        ReportBatch batch = analyticsService.newReportBatch();
+        ReportBatch.Result<Map<String, Double>> revenueByBrand = batch.revenueByBrand();
+        ReportBatch.Result<Map<String, Integer>> quantityByBrand = batch.quantitySoldByBrand();
+        ReportBatch.Result<Map<Integer, Double>> revenueByMonth = batch.revenueByMonth(year);
+        ReportBatch.Result<Map<String, Long>> invoicesBySalesperson = batch.invoicesBySalespersonWithMinRevenue(min);
+        ReportBatch.Result<Map<String, Double>> averageDiscount = batch.averageDiscountBySalesperson();
+        batch.run();
+        printDoubleMap("Doanh thu", revenueByBrand.get());
+        printIntMap("So luong", quantityByBrand.get());
+        printDoubleMap("Doanh thu theo thang " + year, revenueByMonth.get());
+        printLongMap("So hoa don", invoicesBySalesperson.get());
+        printDoubleMap("Giam gia trung binh (%)", averageDiscount.get());
+    }
+
     /**
      * Tự động chạy qua tất cả chức năng để trình diễn bài toán.
      * Dùng để minh chứng yêu cầu đề tài mà không cần thao tác thủ công.
@@ -402,12 +616,18 @@ public class ConsoleApp {
         showEmployeeAggregations();
 
         System.out.println("6) Bao cao dieu kien");
-        printDoubleMap("Doanh thu theo thuong hieu", analyticsService.revenueByBrand());
-        printIntMap("So luong ban theo thuong hieu", analyticsService.quantitySoldByBrand());
-        printDoubleMap("Doanh thu theo thang nam 2024", analyticsService.revenueByMonth(2024));
-        printLongMap("Hoa don >= 20 trieu theo nhan vien",
-                analyticsService.invoicesBySalespersonWithMinRevenue(20_000_000));
-        printLongMap("Dien thoai ton kho >= 10", analyticsService.phonesByBrandWithStockGreaterThan(10));
+        ReportBatch batch = analyticsService.newReportBatch();
+        ReportBatch.Result<Map<String, Double>> revenueByBrand = batch.revenueByBrand();
+        ReportBatch.Result<Map<String, Integer>> quantityByBrand = batch.quantitySoldByBrand();
+        ReportBatch.Result<Map<Integer, Double>> revenueByMonth = batch.revenueByMonth(2024);
+        ReportBatch.Result<Map<String, Long>> bigInvoices = batch.invoicesBySalespersonWithMinRevenue(20_000_000);
+        ReportBatch.Result<Map<String, Long>> stockedPhones = batch.phonesByBrandWithStockGreaterThan(10);
+        batch.run();
+        printDoubleMap("Doanh thu theo thuong hieu", revenueByBrand.get());
+        printIntMap("So luong ban theo thuong hieu", quantityByBrand.get());
+        printDoubleMap("Doanh thu theo thang nam 2024", revenueByMonth.get());
+        printLongMap("Hoa don >= 20 trieu theo nhan vien", bigInvoices.get());
+        printLongMap("Dien thoai ton kho >= 10", stockedPhones.get());
     }
 
     /**
@@ -674,7 +894,7 @@ public class ConsoleApp {
      *
      * @param phones danh sách cần in.
      */
-    private void printPhones(List<Phone> phones) {
+    private void printPhones(Collection<Phone> phones) {
         if (phones.isEmpty()) {
             System.out.println("(Khong co du lieu)");
             return;
@@ -692,7 +912,7 @@ public class ConsoleApp {
      *
      * @param customers danh sách cần in.
      */
-    private void printCustomers(List<Customer> customers) {
+    private void printCustomers(Collection<Customer> customers) {
         if (customers.isEmpty()) {
             System.out.println("(Khong co du lieu)");
             return;
@@ -710,7 +930,7 @@ public class ConsoleApp {
      *
      * @param invoices danh sách cần in.
      */
-    private void printInvoices(List<Invoice> invoices) {
+    private void printInvoices(Collection<Invoice> invoices) {
         if (invoices.isEmpty()) {
             System.out.println("(Khong co du lieu)");
             return;
@@ -729,7 +949,7 @@ public class ConsoleApp {
      *
      * @param employees danh sách cần in.
      */
-    private void printEmployees(List<Employee> employees) {
+    private void printEmployees(Collection<Employee> employees) {
         if (employees.isEmpty()) {
             System.out.println("(Khong co du lieu)");
             return;
@@ -0,0 +1,410 @@
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Con trỏ đọc lần lượt các trường của một dòng CSV, thay cho {@code line.split(",")} rồi
+ * {@code trim()} và parse từng chuỗi con: số nguyên, số thực và ngày ISO được đọc thẳng từ
+ * ký tự của dòng, chỉ trường chuỗi mới tạo String (đã bỏ khoảng trắng hai đầu).
+ * <p>
+ * Hỗ trợ trích dẫn theo RFC 4180: trường bọc trong dấu nháy kép có thể chứa dấu phẩy, hai dấu
+ * nháy liền nhau là một dấu nháy; nội dung trong nháy được giữ nguyên. Dữ liệu đọc theo dòng
+ * nên trường không được chứa ký tự xuống dòng ({@link #quote} không bọc được trường như vậy).
+ * <p>
+ * Một con trỏ dùng lại được cho nhiều dòng qua {@link #reset}; không an toàn đa luồng.
+ */
+public class CsvCursor {
+    private static final char SEPARATOR = ',';
+    private static final char QUOTE = '"';
+    // Lũy thừa 10 biểu diễn chính xác bằng double, dùng cho đường nhanh của nextDouble
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    // Số chữ số có nghĩa tối đa để phần định trị còn chính xác trong double
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    /**
+     * Góc nhìn CharSequence trên một đoạn byte ASCII, không sao chép.
+     */
+    private static final class AsciiView implements CharSequence {
+        private ByteBuffer bytes;
+        private int offset;
+        private int length;
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) bytes.get(offset + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            byte[] copy = new byte[end - start];
+            bytes.get(offset + start, copy);
+            return new String(copy, StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length).toString();
+        }
+    }
+
+    private CharSequence line = "";
+    private int pos;
+    private int end;
+    private int field;
+    // Vị trí [start, stop) của trường vừa đọc nếu không có nháy
+    private int start;
+    private int stop;
+    // Nội dung trường có nháy (đã bỏ nháy kép), null nếu trường không có nháy
+    private StringBuilder quoted;
+    private boolean quotedField;
+    private final AsciiView asciiView = new AsciiView();
+    private CharsetDecoder decoder;
+    private CharBuffer decoded;
+
+    /**
+     * Bắt đầu đọc một dòng mới.
+     *
+     * @param line dòng CSV (không gồm ký tự xuống dòng).
+     * @return chính con trỏ này.
+     */
+    public CsvCursor reset(CharSequence line) {
+        this.line = line;
+        this.pos = 0;
+        this.end = line.length();
+        this.field = 0;
+        return this;
+    }
+
+    /**
+     * Bắt đầu đọc một dòng mã hoá UTF-8 nằm trong bộ đệm byte, trong khoảng [from, to).
+     * Dòng toàn ASCII được đọc thẳng trên bộ đệm; dòng có ký tự nhiều byte được giải mã vào
+     * bộ đệm ký tự dùng lại của con trỏ. Vị trí và giới hạn của bộ đệm không bị thay đổi.
+     *
+     * @param bytes bộ đệm chứa dòng.
+     * @param from  vị trí byte đầu dòng.
+     * @param to    vị trí ngay sau byte cuối dòng.
+     * @return chính con trỏ này.
+     * @throws IllegalArgumentException nếu dòng không phải UTF-8 hợp lệ.
+     */
+    public CsvCursor reset(ByteBuffer bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes.get(i) < 0) {
+                return reset(decode(bytes, from, to));
+            }
+        }
+        asciiView.bytes = bytes;
+        asciiView.offset = from;
+        asciiView.length = to - from;
+        return reset(asciiView);
+    }
+
+    /** @return dòng đang đọc (để báo lỗi). */
+    public String line() {
+        return line.toString();
+    }
+
+    /** @return true nếu dòng còn trường chưa đọc (dòng nào cũng có ít nhất một trường). */
+    public boolean hasNext() {
+        return pos <= end;
+    }
+
+    /**
+     * @return trường tiếp theo dạng chuỗi, đã bỏ khoảng trắng hai đầu (trừ phần trong nháy).
+     * @throws IllegalArgumentException nếu dòng đã hết trường.
+     */
+    public String nextString() {
+        advance();
+        return quotedField ? quoted.toString() : line.subSequence(start, stop).toString();
+    }
+
+    /**
+     * @return trường tiếp theo dạng số nguyên.
+     * @throws NumberFormatException    nếu trường không phải số nguyên hợp lệ.
+     * @throws IllegalArgumentException nếu dòng đã hết trường.
+     */
+    public int nextInt() {
+        advance();
+        CharSequence text = fieldText();
+        int from = quotedField ? 0 : start;
+        int to = quotedField ? text.length() : stop;
+        long value = parseDigits(text, from, to, true);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw invalidNumber(text, from, to);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Đọc số thực. Dạng thập phân thông thường (kể cả số mũ như {@code 3.499E7}) có tối đa
+     * 15 chữ số có nghĩa được tính thẳng và làm tròn đúng; dạng khác dùng
+     * {@link Double#parseDouble}.
+     *
+     * @return trường tiếp theo dạng số thực.
+     * @throws NumberFormatException    nếu trường không phải số hợp lệ.
+     * @throws IllegalArgumentException nếu dòng đã hết trường.
+     */
+    public double nextDouble() {
+        advance();
+        CharSequence text = fieldText();
+        int from = quotedField ? 0 : start;
+        int to = quotedField ? text.length() : stop;
+        double value = parseDoubleFast(text, from, to);
+        if (Double.isNaN(value)) {
+            return Double.parseDouble(text.subSequence(from, to).toString());
+        }
+        return value;
+    }
+
+    /**
+     * Đọc ngày dạng ISO {@code yyyy-MM-dd}.
+     *
+     * @return trường tiếp theo dạng ngày.
+     * @throws java.time.DateTimeException nếu ngày không hợp lệ.
+     * @throws IllegalArgumentException     nếu dòng đã hết trường hoặc sai định dạng.
+     */
+    public LocalDate nextDate() {
+        advance();
+        CharSequence text = fieldText();
+        int from = quotedField ? 0 : start;
+        int to = quotedField ? text.length() : stop;
+        if (to - from != 10 || text.charAt(from + 4) != '-' || text.charAt(from + 7) != '-') {
+            return LocalDate.parse(text.subSequence(from, to));
+        }
+        int year = (int) parseDigits(text, from, from + 4, false);
+        int month = (int) parseDigits(text, from + 5, from + 7, false);
+        int day = (int) parseDigits(text, from + 8, to, false);
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * Bọc một giá trị theo RFC 4180 nếu cần (chứa dấu phẩy, dấu nháy hoặc khoảng trắng đầu/cuối),
+     * để {@link #nextString()} đọc lại đúng giá trị đó.
+     *
+     * @param value giá trị cần ghi.
+     * @return giá trị nguyên dạng (kể cả null) hoặc đã bọc nháy.
+     */
+    public static String quote(String value) {
+        if (value == null || value.isEmpty()) {
+            return value;
+        }
+        boolean needsQuote = value.charAt(0) <= ' ' || value.charAt(value.length() - 1) <= ' ';
+        for (int i = 0; i < value.length() && !needsQuote; i++) {
+            char c = value.charAt(i);
+            needsQuote = c == SEPARATOR || c == QUOTE;
+        }
+        if (!needsQuote) {
+            return value;
+        }
+        return QUOTE + value.replace("\"", "\"\"") + QUOTE;
+    }
+
+    /**
+     * Xác định trường tiếp theo: ghi lại khoảng [start, stop) (đã bỏ khoảng trắng) hoặc nội dung
+     * trong nháy, rồi đưa con trỏ qua dấu phẩy kế tiếp.
+     */
+    private void advance() {
+        if (pos > end) {
+            throw new IllegalArgumentException("Missing field " + (field + 1) + " in line: " + line);
+        }
+        field++;
+        while (pos < end && line.charAt(pos) <= ' ') {
+            pos++;
+        }
+        if (pos < end && line.charAt(pos) == QUOTE) {
+            readQuoted();
+        } else {
+            quotedField = false;
+            start = pos;
+            while (pos < end && line.charAt(pos) != SEPARATOR) {
+                pos++;
+            }
+            stop = pos;
+            while (stop > start && line.charAt(stop - 1) <= ' ') {
+                stop--;
+            }
+        }
+        // Qua dấu phẩy; nếu đã hết dòng thì pos vượt end để lần đọc sau báo thiếu trường
+        pos++;
+    }
+
+    private void readQuoted() {
+        quotedField = true;
+        if (quoted == null) {
+            quoted = new StringBuilder();
+        }
+        quoted.setLength(0);
+        pos++;
+        while (true) {
+            if (pos >= end) {
+                throw new IllegalArgumentException("Unterminated quoted field " + field + " in line: " + line);
+            }
+            char c = line.charAt(pos++);
+            if (c == QUOTE) {
+                if (pos < end && line.charAt(pos) == QUOTE) {
+                    quoted.append(QUOTE);
+                    pos++;
+                } else {
+                    break;
+                }
+            } else {
+                quoted.append(c);
+            }
+        }
+        while (pos < end && line.charAt(pos) != SEPARATOR) {
+            if (line.charAt(pos) > ' ') {
+                throw new IllegalArgumentException("Unexpected text after quoted field " + field + " in line: " + line);
+            }
+            pos++;
+        }
+    }
+
+    private CharSequence fieldText() {
+        return quotedField ? quoted : line;
+    }
+
+    /**
+     * Đọc số nguyên thập phân (có dấu nếu signed) trong [from, to), tối đa 18 chữ số.
+     */
+    private static long parseDigits(CharSequence text, int from, int to, boolean signed) {
+        int i = from;
+        boolean negative = false;
+        if (signed && i < to && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+        if (i == to || to - i > 18) {
+            throw invalidNumber(text, from, to);
+        }
+        long value = 0;
+        for (; i < to; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalidNumber(text, from, to);
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Đường nhanh cho số thực: định trị nguyên tối đa 15 chữ số và số mũ thập phân trong
+     * khoảng lũy thừa 10 chính xác, khi đó một phép nhân/chia cho kết quả làm tròn đúng.
+     *
+     * @return giá trị, hoặc NaN nếu cần dùng đường chậm.
+     */
+    private static double parseDoubleFast(CharSequence text, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean any = false;
+        boolean fraction = false;
+        for (; i < to; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                any = true;
+                if (mantissa == 0 && c == '0') {
+                    if (fraction) {
+                        scale--;
+                    }
+                    continue;
+                }
+                if (++digits > MAX_EXACT_DIGITS) {
+                    return Double.NaN;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (fraction) {
+                    scale--;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+        if (!any) {
+            return Double.NaN;
+        }
+        if (i < to) {
+            char c = text.charAt(i);
+            if (c != 'e' && c != 'E') {
+                return Double.NaN;
+            }
+            i++;
+            boolean negativeExponent = false;
+            if (i < to && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+                negativeExponent = text.charAt(i) == '-';
+                i++;
+            }
+            if (i == to || to - i > 3) {
+                return Double.NaN;
+            }
+            int exponent = 0;
+            for (; i < to; i++) {
+                int digit = text.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return Double.NaN;
+                }
+                exponent = exponent * 10 + digit;
+            }
+            scale += negativeExponent ? -exponent : exponent;
+        }
+        double value;
+        if (mantissa == 0) {
+            value = 0;
+        } else if (scale >= 0 && scale < POWERS_OF_TEN.length) {
+            value = mantissa * POWERS_OF_TEN[scale];
+        } else if (scale < 0 && -scale < POWERS_OF_TEN.length) {
+            value = mantissa / POWERS_OF_TEN[-scale];
+        } else {
+            return Double.NaN;
+        }
+        return negative ? -value : value;
+    }
+
+    private static NumberFormatException invalidNumber(CharSequence text, int from, int to) {
+        return new NumberFormatException("For input string: \"" + text.subSequence(from, to) + "\"");
+    }
+
+    private CharSequence decode(ByteBuffer bytes, int from, int to) {
+        if (decoder == null) {
+            decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT);
+            decoded = CharBuffer.allocate(256);
+        }
+        if (decoded.capacity() < to - from) {
+            decoded = CharBuffer.allocate(to - from);
+        }
+        decoded.clear();
+        decoder.reset();
+        CoderResult result = decoder.decode(bytes.slice(from, to - from), decoded, true);
+        if (result.isError()) {
+            try {
+                result.throwException();
+            } catch (CharacterCodingException e) {
+                throw new IllegalArgumentException("Invalid UTF-8 line at byte " + from, e);
+            }
+        }
+        decoder.flush(decoded);
+        decoded.flip();
+        return decoded;
+    }
+}
@@ -1,14 +1,19 @@
+import java.io.IOException;
 import java.util.Objects;
 
 /**
  * Thông tin khách hàng dùng cho CRUD và thống kê.
  */
 public class Customer {
+    /** Từ điển dùng chung cho hạng thành viên. */
+    public static final StringDictionary TIERS = new StringDictionary();
+
     private final String id;
     private final String fullName;
     private final String phone;
     private final String email;
     private final String tier;
+    private final int tierCode;
     private final int joinYear;
     private final double totalSpent;
 
@@ -28,7 +33,8 @@ public class Customer {
         this.fullName = fullName;
         this.phone = phone;
         this.email = email;
-        this.tier = tier;
+        this.tierCode = TIERS.encode(tier);
+        this.tier = TIERS.decode(tierCode);
         this.joinYear = joinYear;
         this.totalSpent = totalSpent;
     }
@@ -58,6 +64,11 @@ public class Customer {
         return tier;
     }
 
+    /** Mã hạng trong {@link #TIERS}. */
+    public int getTierCode() {
+        return tierCode;
+    }
+
     /** Năm tham gia lần đầu. */
     public int getJoinYear() {
         return joinYear;
@@ -75,11 +86,11 @@ public class Customer {
      */
     public String toCsv() {
         return String.join(",",
-                id,
-                fullName,
-                phone,
-                email,
-                tier,
+                CsvCursor.quote(id),
+                CsvCursor.quote(fullName),
+                CsvCursor.quote(phone),
+                CsvCursor.quote(email),
+                CsvCursor.quote(tier),
                 String.valueOf(joinYear),
                 String.valueOf(totalSpent));
     }
@@ -91,18 +102,61 @@ public class Customer {
      * @return Customer tương ứng.
      */
     public static Customer fromCsv(String line) {
-        String[] parts = line.split(",");
-        if (parts.length < 7) {
-            throw new IllegalArgumentException("Invalid customer line: " + line);
+        return fromCsv(new CsvCursor().reset(line));
+    }
+
+    /**
+     * Đọc khách hàng từ dòng đang trỏ bởi con trỏ CSV (dùng lại được cho nhiều dòng khi nạp file).
+     *
+     * @param cursor con trỏ đã {@link CsvCursor#reset đặt} vào dòng cần đọc.
+     * @return khách hàng tương ứng.
+     * @throws IllegalArgumentException nếu dòng thiếu trường hoặc sai định dạng.
+     */
+    public static Customer fromCsv(CsvCursor cursor) {
+        try {
+            return new Customer(
+                    cursor.nextString(),
+                    cursor.nextString(),
+                    cursor.nextString(),
+                    cursor.nextString(),
+                    cursor.nextString(),
+                    cursor.nextInt(),
+                    cursor.nextDouble());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid customer line: " + cursor.line(), e);
         }
+    }
+
+    /**
+     * Ghi khách hàng vào snapshot nhị phân, cùng thứ tự trường với {@link #toCsv()}.
+     *
+     * @param out snapshot đang ghi.
+     */
+    public void writeTo(SnapshotWriter out) throws IOException {
+        out.writeString(id);
+        out.writeString(fullName);
+        out.writeString(phone);
+        out.writeString(email);
+        out.writeString(tier);
+        out.writeInt(joinYear);
+        out.writeDouble(totalSpent);
+    }
+
+    /**
+     * Đọc khách hàng do {@link #writeTo} ghi.
+     *
+     * @param in snapshot đang đọc.
+     * @return khách hàng tương ứng.
+     */
+    public static Customer readFrom(SnapshotReader in) throws IOException {
         return new Customer(
-                parts[0].trim(),
-                parts[1].trim(),
-                parts[2].trim(),
-                parts[3].trim(),
-                parts[4].trim(),
-                Integer.parseInt(parts[5].trim()),
-                Double.parseDouble(parts[6].trim()));
+                in.readString(),
+                in.readString(),
+                in.readString(),
+                in.readString(),
+                in.readString(),
+                in.readInt(),
+                in.readDouble());
     }
 
     @Override
@@ -1,4 +1,6 @@
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -8,17 +10,56 @@ import java.util.Optional;
 
 /**
  * Quản lý danh sách khách hàng trên danh sách liên kết đơn.
+ * Mỗi thao tác ghi giữ khoá theo mã ({@link KeyLocks}) từ lúc đổi danh sách chính tới khi các
+ * chỉ mục đã cập nhật xong, nên với bộ máy {@link LinkedStore.Engine#CONCURRENT} các chỉ mục
+ * không bị lệch khi nhiều quầy cùng sửa một mã.
  */
 public class CustomerManager {
-    private final SinglyLinkedList<Customer> customers = new SinglyLinkedList<>();
+    private final LinkedStore<Customer> customers;
+    // Chỉ mục trigram trên họ tên, luôn đồng bộ với customers
+    private final TrigramIndex<Customer> nameIndex = new TrigramIndex<>(Customer::getId, Customer::getFullName);
+    // Chỉ mục sắp theo chi tiêu và năm tham gia cho các truy vấn cực trị
+    private final SortedFieldIndex<Customer> spentIndex;
+    private final SortedFieldIndex<Customer> joinYearIndex;
+    // Mọi cấu trúc phụ cập nhật cùng customers
+    private final List<SecondaryIndex<Customer>> indexes;
+    // Khoá theo mã, giữ trong lúc đổi customers và các chỉ mục
+    private final KeyLocks keyLocks = new KeyLocks();
+
+    /**
+     * Tạo Manager với bộ máy lưu trữ chọn qua thuộc tính hệ thống {@code storage.engine}.
+     */
+    public CustomerManager() {
+        this(LinkedStore.Engine.fromSystemProperty());
+    }
+
+    /**
+     * @param engine bộ máy lưu trữ danh sách khách hàng.
+     */
+    public CustomerManager(LinkedStore.Engine engine) {
+        this.customers = LinkedStore.create(engine, Customer::getId);
+        this.spentIndex = new SortedFieldIndex<>(customers, Customer::getTotalSpent);
+        this.joinYearIndex = new SortedFieldIndex<>(customers, Customer::getJoinYear);
+        this.indexes = List.of(nameIndex, spentIndex, joinYearIndex);
+    }
 
     /**
      * Thêm khách hàng mới vào danh sách.
      *
      * @param customer khách hàng cần thêm.
+     * @return false nếu mã đã tồn tại (không thêm).
      */
-    public void addCustomer(Customer customer) {
-        customers.appendRaw(customer);
+    public boolean addCustomer(Customer customer) {
+        keyLocks.lock(customer.getId());
+        try {
+            if (!customers.addIfAbsent(customer)) {
+                return false;
+            }
+            indexAdded(customer);
+            return true;
+        } finally {
+            keyLocks.unlock(customer.getId());
+        }
     }
 
     /**
@@ -27,9 +68,21 @@ public class CustomerManager {
      * @param id      mã cần tìm.
      * @param updated dữ liệu mới.
      * @return true nếu có cập nhật.
+     * @throws IllegalArgumentException nếu dữ liệu mới đổi sang mã đã tồn tại.
      */
     public boolean updateCustomer(String id, Customer updated) {
-        return customers.replaceFirst(c -> c.getId().equalsIgnoreCase(id), updated);
+        keyLocks.lock(id, updated.getId());
+        try {
+            if (!customers.replaceByKey(id, updated)) {
+                return false;
+            }
+            for (SecondaryIndex<Customer> index : indexes) {
+                index.update(id, updated);
+            }
+            return true;
+        } finally {
+            keyLocks.unlock(id, updated.getId());
+        }
     }
 
     /**
@@ -39,7 +92,18 @@ public class CustomerManager {
      * @return true nếu xoá thành công.
      */
     public boolean deleteCustomer(String id) {
-        return customers.removeFirst(c -> c.getId().equalsIgnoreCase(id));
+        keyLocks.lock(id);
+        try {
+            if (customers.removeByKey(id) == null) {
+                return false;
+            }
+            for (SecondaryIndex<Customer> index : indexes) {
+                index.remove(id);
+            }
+            return true;
+        } finally {
+            keyLocks.unlock(id);
+        }
     }
 
     /**
@@ -49,27 +113,19 @@ public class CustomerManager {
      * @return Optional<Customer>.
      */
     public Optional<Customer> findById(String id) {
-        for (Customer c : customers) {
-            if (c.getId().equalsIgnoreCase(id)) {
-                return Optional.of(c);
-            }
-        }
-        return Optional.empty();
+        return customers.findByKey(id);
     }
 
     /**
-     * Tìm theo từ khóa tên.
+     * Tìm theo từ khóa tên qua chỉ mục trigram, không duyệt từng phần tử.
      *
      * @param keyword chuỗi tìm kiếm.
      * @return danh sách phù hợp.
      */
     public List<Customer> findByNameKeyword(String keyword) {
-        String normalized = keyword.toLowerCase(Locale.ROOT);
         List<Customer> result = new ArrayList<>();
-        for (Customer c : customers) {
-            if (c.getFullName().toLowerCase(Locale.ROOT).contains(normalized)) {
-                result.add(c);
-            }
+        for (String id : nameIndex.search(keyword)) {
+            customers.findByKey(id).ifPresent(result::add);
         }
         return result;
     }
@@ -113,46 +169,22 @@ public class CustomerManager {
 
     /** @return khách chi tiêu cao nhất (Optional). */
     public Optional<Customer> findHighestSpent() {
-        Customer candidate = null;
-        for (Customer c : customers) {
-            if (candidate == null || c.getTotalSpent() > candidate.getTotalSpent()) {
-                candidate = c;
-            }
-        }
-        return Optional.ofNullable(candidate);
+        return spentIndex.max();
     }
 
     /** @return khách chi tiêu thấp nhất (Optional). */
     public Optional<Customer> findLowestSpent() {
-        Customer candidate = null;
-        for (Customer c : customers) {
-            if (candidate == null || c.getTotalSpent() < candidate.getTotalSpent()) {
-                candidate = c;
-            }
-        }
-        return Optional.ofNullable(candidate);
+        return spentIndex.min();
     }
 
     /** @return khách tham gia sớm nhất (Optional). */
     public Optional<Customer> findEarliestJoin() {
-        Customer candidate = null;
-        for (Customer c : customers) {
-            if (candidate == null || c.getJoinYear() < candidate.getJoinYear()) {
-                candidate = c;
-            }
-        }
-        return Optional.ofNullable(candidate);
+        return joinYearIndex.min();
     }
 
     /** @return khách tham gia gần nhất (Optional). */
     public Optional<Customer> findLatestJoin() {
-        Customer candidate = null;
-        for (Customer c : customers) {
-            if (candidate == null || c.getJoinYear() > candidate.getJoinYear()) {
-                candidate = c;
-            }
-        }
-        return Optional.ofNullable(candidate);
+        return joinYearIndex.max();
     }
 
     /** @return tổng chi tiêu của toàn bộ khách hàng. */
@@ -185,11 +217,11 @@ public class CustomerManager {
 
     /** @return Map hạng -> số khách. */
     public Map<String, Long> countByTier() {
-        Map<String, Long> summary = new HashMap<>();
+        CodeTally tally = new CodeTally(Customer.TIERS);
         for (Customer c : customers) {
-            summary.merge(c.getTier(), 1L, Long::sum);
+            tally.add(c.getTierCode());
         }
-        return summary;
+        return tally.counts(Customer.TIERS);
     }
 
     /** @return Map năm tham gia -> số khách. */
@@ -212,19 +244,126 @@ public class CustomerManager {
         return summary;
     }
 
-    /** @return danh sách khách hàng (bản sao). */
-    public List<Customer> getAll() {
-        return customers.toList();
+    /**
+     * Lấy toàn bộ danh sách hiện tại dưới dạng góc nhìn chỉ đọc (không sao chép).
+     * Cần bản sao độc lập thì dùng {@code new ArrayList<>(getAll())}.
+     *
+     * @return Collection chỉ đọc phản ánh dữ liệu hiện tại.
+     */
+    public Collection<Customer> getAll() {
+        return customers.view();
     }
 
     /**
-     * Thay thế toàn bộ dữ liệu (dùng khi đọc file).
+     * Thay thế toàn bộ dữ liệu (dùng khi đọc file), chỉ mục mã được dựng lại.
      *
      * @param newCustomers danh sách mới.
+     * @throws IllegalArgumentException nếu dữ liệu mới có mã trùng nhau.
      */
     public void replaceAll(List<Customer> newCustomers) {
-        customers.clear();
-        customers.bulkAdd(newCustomers);
+        keyLocks.lockAll();
+        try {
+            customers.clear();
+            customers.appendAll(newCustomers);
+        } finally {
+            afterReplace();
+            keyLocks.unlockAll();
+        }
+    }
+
+    /**
+     * Thay toàn bộ dữ liệu bằng các khách hàng đọc dần từ nguồn: mỗi bản ghi được đưa thẳng vào
+     * kho lưu trữ ngay khi đọc, không dựng danh sách trung gian; cấu trúc phụ được dựng lại
+     * một lần ở cuối. Nếu đọc lỗi hoặc gặp mã trùng thì danh sách được để trống.
+     *
+     * @param source nguồn dữ liệu, vd. {@code sink -> fileService.loadCustomers(path, sink)}.
+     * @throws IOException              nếu đọc nguồn thất bại.
+     * @throws IllegalArgumentException nếu nguồn có mã trùng nhau hoặc dòng sai định dạng.
+     */
+    public void loadAll(RecordSource<Customer> source) throws IOException {
+        keyLocks.lockAll();
+        try {
+            customers.clear();
+            source.forEachRecord(item -> {
+                if (!customers.addIfAbsent(item)) {
+                    throw new IllegalArgumentException("Duplicate key: " + item.getId());
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            customers.clear();
+            throw e;
+        } finally {
+            afterReplace();
+            keyLocks.unlockAll();
+        }
+    }
+
+    /**
+     * Sắp xếp theo tiêu chí tuỳ ý.
+     *
+     * @param comparator     tiêu chí sắp xếp.
+     * @param reorderPrimary true để sắp xếp lại chính danh sách lưu trữ bằng merge sort tại chỗ
+     *                       (không sao chép, thứ tự mới được giữ cho lần in/ghi sau);
+     *                       false để chỉ trả về bản sao đã sắp xếp.
+     * @return các khách hàng theo thứ tự mới.
+     */
+    public Collection<Customer> sortBy(Comparator<Customer> comparator, boolean reorderPrimary) {
+        if (reorderPrimary) {
+            keyLocks.lockAll();
+            try {
+                customers.sort(comparator);
+                rebuildIndexes();
+            } finally {
+                keyLocks.unlockAll();
+            }
+            return customers.view();
+        }
+        return sortCopy(comparator);
+    }
+
+    /**
+     * Lấy k khách hàng đứng đầu theo tiêu chí mà không sắp xếp toàn bộ danh sách
+     * (heap giới hạn, O(n log k) thời gian, O(k) bộ nhớ).
+     *
+     * @param comparator tiêu chí sắp xếp.
+     * @param k          số khách hàng cần lấy.
+     * @return danh sách mới gồm tối đa k khách hàng theo thứ tự tiêu chí.
+     * @throws IllegalArgumentException nếu k âm.
+     */
+    public List<Customer> topK(Comparator<Customer> comparator, int k) {
+        return page(comparator, 0, k);
+    }
+
+    /**
+     * Lấy một trang khách hàng theo tiêu chí (thứ tự giống sortBy với reorderPrimary = false).
+     *
+     * @param comparator tiêu chí sắp xếp.
+     * @param offset     số khách hàng bỏ qua ở đầu.
+     * @param limit      số khách hàng tối đa của trang.
+     * @return danh sách mới chứa trang cần lấy.
+     * @throws IllegalArgumentException nếu offset hoặc limit âm.
+     */
+    public List<Customer> page(Comparator<Customer> comparator, int offset, int limit) {
+        return TopK.page(customers, comparator, offset, limit);
+    }
+
+    /**
+     * Dựng lại mọi cấu trúc phụ sau khi thay toàn bộ danh sách.
+     */
+    private void afterReplace() {
+        rebuildIndexes();
+    }
+
+    private void indexAdded(Customer item) {
+        for (SecondaryIndex<Customer> index : indexes) {
+            index.add(item);
+        }
+    }
+
+    private void rebuildIndexes() {
+        for (SecondaryIndex<Customer> index : indexes) {
+            index.rebuild(customers);
+        }
     }
 
     private List<Customer> sortCopy(Comparator<Customer> comparator) {
@@ -1,12 +1,17 @@
+import java.io.IOException;
 import java.util.Objects;
 
 /**
  * Thông tin nhân viên bán hàng.
  */
 public class Employee {
+    /** Từ điển dùng chung cho chức vụ. */
+    public static final StringDictionary ROLES = new StringDictionary();
+
     private final String id;
     private final String fullName;
     private final String role;
+    private final int roleCode;
     private final String phone;
     private final double salary;
     private final int yearsExperience;
@@ -26,7 +31,8 @@ public class Employee {
     public Employee(String id, String fullName, String role, String phone, double salary, int yearsExperience, double monthlySales) {
         this.id = id;
         this.fullName = fullName;
-        this.role = role;
+        this.roleCode = ROLES.encode(role);
+        this.role = ROLES.decode(roleCode);
         this.phone = phone;
         this.salary = salary;
         this.yearsExperience = yearsExperience;
@@ -48,6 +54,11 @@ public class Employee {
         return role;
     }
 
+    /** Mã chức vụ trong {@link #ROLES}. */
+    public int getRoleCode() {
+        return roleCode;
+    }
+
     /** Số điện thoại liên hệ. */
     public String getPhone() {
         return phone;
@@ -75,10 +86,10 @@ public class Employee {
      */
     public String toCsv() {
         return String.join(",",
-                id,
-                fullName,
-                role,
-                phone,
+                CsvCursor.quote(id),
+                CsvCursor.quote(fullName),
+                CsvCursor.quote(role),
+                CsvCursor.quote(phone),
                 String.valueOf(salary),
                 String.valueOf(yearsExperience),
                 String.valueOf(monthlySales));
@@ -91,18 +102,61 @@ public class Employee {
      * @return Employee tương ứng.
      */
     public static Employee fromCsv(String line) {
-        String[] parts = line.split(",");
-        if (parts.length < 7) {
-            throw new IllegalArgumentException("Invalid employee line: " + line);
+        return fromCsv(new CsvCursor().reset(line));
+    }
+
+    /**
+     * Đọc nhân viên từ dòng đang trỏ bởi con trỏ CSV (dùng lại được cho nhiều dòng khi nạp file).
+     *
+     * @param cursor con trỏ đã {@link CsvCursor#reset đặt} vào dòng cần đọc.
+     * @return nhân viên tương ứng.
+     * @throws IllegalArgumentException nếu dòng thiếu trường hoặc sai định dạng.
+     */
+    public static Employee fromCsv(CsvCursor cursor) {
+        try {
+            return new Employee(
+                    cursor.nextString(),
+                    cursor.nextString(),
+                    cursor.nextString(),
+                    cursor.nextString(),
+                    cursor.nextDouble(),
+                    cursor.nextInt(),
+                    cursor.nextDouble());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid employee line: " + cursor.line(), e);
         }
+    }
+
+    /**
+     * Ghi nhân viên vào snapshot nhị phân, cùng thứ tự trường với {@link #toCsv()}.
+     *
+     * @param out snapshot đang ghi.
+     */
+    public void writeTo(SnapshotWriter out) throws IOException {
+        out.writeString(id);
+        out.writeString(fullName);
+        out.writeString(role);
+        out.writeString(phone);
+        out.writeDouble(salary);
+        out.writeInt(yearsExperience);
+        out.writeDouble(monthlySales);
+    }
+
+    /**
+     * Đọc nhân viên do {@link #writeTo} ghi.
+     *
+     * @param in snapshot đang đọc.
+     * @return nhân viên tương ứng.
+     */
+    public static Employee readFrom(SnapshotReader in) throws IOException {
         return new Employee(
-                parts[0].trim(),
-                parts[1].trim(),
-                parts[2].trim(),
-                parts[3].trim(),
-                Double.parseDouble(parts[4].trim()),
-                Integer.parseInt(parts[5].trim()),
-                Double.parseDouble(parts[6].trim()));
+                in.readString(),
+                in.readString(),
+                in.readString(),
+                in.readString(),
+                in.readDouble(),
+                in.readInt(),
+                in.readDouble());
     }
 
     @Override
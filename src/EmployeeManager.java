@@ -1,6 +1,7 @@
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -8,17 +9,61 @@ import java.util.Optional;
 
 /**
  * Quản lý danh sách nhân viên.
+ * Mỗi thao tác ghi giữ khoá theo mã ({@link KeyLocks}) từ lúc đổi danh sách chính tới khi các
+ * chỉ mục và tổng lương đã cập nhật xong, nên với bộ máy {@link LinkedStore.Engine#CONCURRENT}
+ * các chỉ mục không bị lệch khi nhiều quầy cùng sửa một mã.
  */
 public class EmployeeManager {
-    private final SinglyLinkedList<Employee> employees = new SinglyLinkedList<>();
+    private final LinkedStore<Employee> employees;
+    // Chỉ mục trigram trên họ tên, luôn đồng bộ với employees
+    private final TrigramIndex<Employee> nameIndex = new TrigramIndex<>(Employee::getId, Employee::getFullName);
+    // Chỉ mục sắp theo lương, kinh nghiệm và doanh số cho các truy vấn cực trị
+    private final SortedFieldIndex<Employee> salaryIndex;
+    private final SortedFieldIndex<Employee> experienceIndex;
+    private final SortedFieldIndex<Employee> salesIndex;
+    // Mọi cấu trúc phụ cập nhật cùng employees
+    private final List<SecondaryIndex<Employee>> indexes;
+    // Tổng lương cộng dồn, cập nhật cùng mọi thao tác thêm/sửa/xoá (khoá trên chính nó)
+    private final RunningSum payroll = new RunningSum();
+    // Khoá theo mã, giữ trong lúc đổi employees và các chỉ mục
+    private final KeyLocks keyLocks = new KeyLocks();
+
+    /**
+     * Tạo Manager với bộ máy lưu trữ chọn qua thuộc tính hệ thống {@code storage.engine}.
+     */
+    public EmployeeManager() {
+        this(LinkedStore.Engine.fromSystemProperty());
+    }
+
+    /**
+     * @param engine bộ máy lưu trữ danh sách nhân viên.
+     */
+    public EmployeeManager(LinkedStore.Engine engine) {
+        this.employees = LinkedStore.create(engine, Employee::getId);
+        this.salaryIndex = new SortedFieldIndex<>(employees, Employee::getSalary);
+        this.experienceIndex = new SortedFieldIndex<>(employees, Employee::getYearsExperience);
+        this.salesIndex = new SortedFieldIndex<>(employees, Employee::getMonthlySales);
+        this.indexes = List.of(nameIndex, salaryIndex, experienceIndex, salesIndex);
+    }
 
     /**
      * Thêm nhân viên mới.
      *
      * @param employee nhân viên cần thêm.
+     * @return false nếu mã đã tồn tại (không thêm).
      */
-    public void addEmployee(Employee employee) {
-        employees.appendRaw(employee);
+    public boolean addEmployee(Employee employee) {
+        keyLocks.lock(employee.getId());
+        try {
+            if (!employees.addIfAbsent(employee)) {
+                return false;
+            }
+            indexAdded(employee);
+            adjustPayroll(0, employee.getSalary());
+            return true;
+        } finally {
+            keyLocks.unlock(employee.getId());
+        }
     }
 
     /**
@@ -27,9 +72,23 @@ public class EmployeeManager {
      * @param id      mã cần tìm.
      * @param updated dữ liệu mới.
      * @return true nếu cập nhật thành công.
+     * @throws IllegalArgumentException nếu dữ liệu mới đổi sang mã đã tồn tại.
      */
     public boolean updateEmployee(String id, Employee updated) {
-        return employees.replaceFirst(e -> e.getId().equalsIgnoreCase(id), updated);
+        keyLocks.lock(id, updated.getId());
+        try {
+            Optional<Employee> old = employees.findByKey(id);
+            if (old.isEmpty() || !employees.replaceByKey(id, updated)) {
+                return false;
+            }
+            adjustPayroll(old.get().getSalary(), updated.getSalary());
+            for (SecondaryIndex<Employee> index : indexes) {
+                index.update(id, updated);
+            }
+            return true;
+        } finally {
+            keyLocks.unlock(id, updated.getId());
+        }
     }
 
     /**
@@ -39,7 +98,20 @@ public class EmployeeManager {
      * @return true nếu xoá thành công.
      */
     public boolean deleteEmployee(String id) {
-        return employees.removeFirst(e -> e.getId().equalsIgnoreCase(id));
+        keyLocks.lock(id);
+        try {
+            Employee removed = employees.removeByKey(id);
+            if (removed == null) {
+                return false;
+            }
+            adjustPayroll(removed.getSalary(), 0);
+            for (SecondaryIndex<Employee> index : indexes) {
+                index.remove(id);
+            }
+            return true;
+        } finally {
+            keyLocks.unlock(id);
+        }
     }
 
     /**
@@ -49,12 +121,7 @@ public class EmployeeManager {
      * @return Optional<Employee>.
      */
     public Optional<Employee> findById(String id) {
-        for (Employee e : employees) {
-            if (e.getId().equalsIgnoreCase(id)) {
-                return Optional.of(e);
-            }
-        }
-        return Optional.empty();
+        return employees.findByKey(id);
     }
 
     /**
@@ -75,18 +142,15 @@ public class EmployeeManager {
     }
 
     /**
-     * Tìm theo từ khóa tên.
+     * Tìm theo từ khóa tên qua chỉ mục trigram, không duyệt từng phần tử.
      *
      * @param keyword chuỗi tìm kiếm.
      * @return danh sách phù hợp.
      */
     public List<Employee> findByNameKeyword(String keyword) {
-        String normalized = keyword.toLowerCase(Locale.ROOT);
         List<Employee> result = new ArrayList<>();
-        for (Employee e : employees) {
-            if (e.getFullName().toLowerCase(Locale.ROOT).contains(normalized)) {
-                result.add(e);
-            }
+        for (String id : nameIndex.search(keyword)) {
+            employees.findByKey(id).ifPresent(result::add);
         }
         return result;
     }
@@ -113,69 +177,37 @@ public class EmployeeManager {
 
     /** @return nhân viên lương cao nhất (Optional). */
     public Optional<Employee> findHighestSalary() {
-        Employee candidate = null;
-        for (Employee e : employees) {
-            if (candidate == null || e.getSalary() > candidate.getSalary()) {
-                candidate = e;
-            }
-        }
-        return Optional.ofNullable(candidate);
+        return salaryIndex.max();
     }
 
     /** @return nhân viên lương thấp nhất (Optional). */
     public Optional<Employee> findLowestSalary() {
-        Employee candidate = null;
-        for (Employee e : employees) {
-            if (candidate == null || e.getSalary() < candidate.getSalary()) {
-                candidate = e;
-            }
-        }
-        return Optional.ofNullable(candidate);
+        return salaryIndex.min();
     }
 
     /** @return nhân viên kinh nghiệm nhiều nhất (Optional). */
     public Optional<Employee> findMostExperience() {
-        Employee candidate = null;
-        for (Employee e : employees) {
-            if (candidate == null || e.getYearsExperience() > candidate.getYearsExperience()) {
-                candidate = e;
-            }
-        }
-        return Optional.ofNullable(candidate);
+        return experienceIndex.max();
     }
 
     /** @return nhân viên doanh số cao nhất (Optional). */
     public Optional<Employee> findTopSales() {
-        Employee candidate = null;
-        for (Employee e : employees) {
-            if (candidate == null || e.getMonthlySales() > candidate.getMonthlySales()) {
-                candidate = e;
-            }
-        }
-        return Optional.ofNullable(candidate);
+        return salesIndex.max();
     }
 
-    /** @return tổng quỹ lương. */
+    /** @return tổng quỹ lương (cộng dồn, O(1)). */
     public double totalPayroll() {
-        double total = 0;
-        for (Employee e : employees) {
-            total += e.getSalary();
+        synchronized (payroll) {
+            return payroll.value();
         }
-        return total;
     }
 
-    /** @return lương trung bình. */
+    /** @return lương trung bình (cộng dồn, O(1)). */
     public double averageSalary() {
         if (employees.isEmpty()) {
             return 0;
         }
-        double sum = 0;
-        int count = 0;
-        for (Employee e : employees) {
-            sum += e.getSalary();
-            count++;
-        }
-        return sum / count;
+        return totalPayroll() / employees.size();
     }
 
     /** @return kinh nghiệm trung bình. */
@@ -208,26 +240,149 @@ public class EmployeeManager {
 
     /** @return Map chức vụ -> số nhân viên. */
     public Map<String, Long> countByRole() {
-        Map<String, Long> summary = new HashMap<>();
+        CodeTally tally = new CodeTally(Employee.ROLES);
         for (Employee e : employees) {
-            summary.merge(e.getRole(), 1L, Long::sum);
+            tally.add(e.getRoleCode());
         }
-        return summary;
+        return tally.counts(Employee.ROLES);
     }
 
-    /** @return danh sách nhân viên (bản sao). */
-    public List<Employee> getAll() {
-        return employees.toList();
+    /**
+     * Lấy toàn bộ danh sách hiện tại dưới dạng góc nhìn chỉ đọc (không sao chép).
+     * Cần bản sao độc lập thì dùng {@code new ArrayList<>(getAll())}.
+     *
+     * @return Collection chỉ đọc phản ánh dữ liệu hiện tại.
+     */
+    public Collection<Employee> getAll() {
+        return employees.view();
     }
 
     /**
-     * Thay thế toàn bộ dữ liệu (dùng khi đọc file).
+     * Thay thế toàn bộ dữ liệu (dùng khi đọc file), chỉ mục mã được dựng lại.
      *
      * @param newEmployees danh sách mới.
+     * @throws IllegalArgumentException nếu dữ liệu mới có mã trùng nhau.
      */
     public void replaceAll(List<Employee> newEmployees) {
-        employees.clear();
-        employees.bulkAdd(newEmployees);
+        keyLocks.lockAll();
+        try {
+            employees.clear();
+            employees.appendAll(newEmployees);
+        } finally {
+            afterReplace();
+            keyLocks.unlockAll();
+        }
+    }
+
+    /**
+     * Thay toàn bộ dữ liệu bằng các nhân viên đọc dần từ nguồn: mỗi bản ghi được đưa thẳng vào
+     * kho lưu trữ ngay khi đọc, không dựng danh sách trung gian; cấu trúc phụ được dựng lại
+     * một lần ở cuối. Nếu đọc lỗi hoặc gặp mã trùng thì danh sách được để trống.
+     *
+     * @param source nguồn dữ liệu, vd. {@code sink -> fileService.loadEmployees(path, sink)}.
+     * @throws IOException              nếu đọc nguồn thất bại.
+     * @throws IllegalArgumentException nếu nguồn có mã trùng nhau hoặc dòng sai định dạng.
+     */
+    public void loadAll(RecordSource<Employee> source) throws IOException {
+        keyLocks.lockAll();
+        try {
+            employees.clear();
+            source.forEachRecord(item -> {
+                if (!employees.addIfAbsent(item)) {
+                    throw new IllegalArgumentException("Duplicate key: " + item.getId());
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            employees.clear();
+            throw e;
+        } finally {
+            afterReplace();
+            keyLocks.unlockAll();
+        }
+    }
+
+    /**
+     * Sắp xếp theo tiêu chí tuỳ ý.
+     *
+     * @param comparator     tiêu chí sắp xếp.
+     * @param reorderPrimary true để sắp xếp lại chính danh sách lưu trữ bằng merge sort tại chỗ
+     *                       (không sao chép, thứ tự mới được giữ cho lần in/ghi sau);
+     *                       false để chỉ trả về bản sao đã sắp xếp.
+     * @return các nhân viên theo thứ tự mới.
+     */
+    public Collection<Employee> sortBy(Comparator<Employee> comparator, boolean reorderPrimary) {
+        if (reorderPrimary) {
+            keyLocks.lockAll();
+            try {
+                employees.sort(comparator);
+                rebuildIndexes();
+            } finally {
+                keyLocks.unlockAll();
+            }
+            return employees.view();
+        }
+        return sortCopy(comparator);
+    }
+
+    /**
+     * Lấy k nhân viên đứng đầu theo tiêu chí mà không sắp xếp toàn bộ danh sách
+     * (heap giới hạn, O(n log k) thời gian, O(k) bộ nhớ).
+     *
+     * @param comparator tiêu chí sắp xếp.
+     * @param k          số nhân viên cần lấy.
+     * @return danh sách mới gồm tối đa k nhân viên theo thứ tự tiêu chí.
+     * @throws IllegalArgumentException nếu k âm.
+     */
+    public List<Employee> topK(Comparator<Employee> comparator, int k) {
+        return page(comparator, 0, k);
+    }
+
+    /**
+     * Lấy một trang nhân viên theo tiêu chí (thứ tự giống sortBy với reorderPrimary = false).
+     *
+     * @param comparator tiêu chí sắp xếp.
+     * @param offset     số nhân viên bỏ qua ở đầu.
+     * @param limit      số nhân viên tối đa của trang.
+     * @return danh sách mới chứa trang cần lấy.
+     * @throws IllegalArgumentException nếu offset hoặc limit âm.
+     */
+    public List<Employee> page(Comparator<Employee> comparator, int offset, int limit) {
+        return TopK.page(employees, comparator, offset, limit);
+    }
+
+    /**
+     * Dựng lại mọi cấu trúc phụ sau khi thay toàn bộ danh sách.
+     */
+    private void afterReplace() {
+        rebuildIndexes();
+        synchronized (payroll) {
+            payroll.reset();
+            for (Employee e : employees) {
+                payroll.add(e.getSalary());
+            }
+        }
+    }
+
+    /**
+     * Trừ lương cũ và cộng lương mới vào tổng lương (0 nếu không có).
+     */
+    private void adjustPayroll(double removed, double added) {
+        synchronized (payroll) {
+            payroll.subtract(removed);
+            payroll.add(added);
+        }
+    }
+
+    private void indexAdded(Employee item) {
+        for (SecondaryIndex<Employee> index : indexes) {
+            index.add(item);
+        }
+    }
+
+    private void rebuildIndexes() {
+        for (SecondaryIndex<Employee> index : indexes) {
+            index.rebuild(employees);
+        }
     }
 
     private List<Employee> sortCopy(Comparator<Employee> comparator) {
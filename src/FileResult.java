@@ -0,0 +1,50 @@
+import java.nio.file.Path;
+
+/**
+ * Kết quả đọc/ghi một file trong một lượt xử lý nhiều file: số bản ghi và thời gian nếu
+ * thành công, hoặc lỗi đã gặp (các file khác không bị ảnh hưởng).
+ */
+public class FileResult {
+    private final Path path;
+    private final long rows;
+    private final long elapsedNanos;
+    private final Exception error;
+
+    /**
+     * @param path         file đã xử lý.
+     * @param rows         số bản ghi đã đọc/ghi (0 nếu lỗi).
+     * @param elapsedNanos thời gian xử lý (nano giây).
+     * @param error        lỗi đã gặp, null nếu thành công.
+     */
+    public FileResult(Path path, long rows, long elapsedNanos, Exception error) {
+        this.path = path;
+        this.rows = rows;
+        this.elapsedNanos = elapsedNanos;
+        this.error = error;
+    }
+
+    /** @return file đã xử lý. */
+    public Path getPath() {
+        return path;
+    }
+
+    /** @return số bản ghi đã đọc/ghi. */
+    public long getRows() {
+        return rows;
+    }
+
+    /** @return thời gian xử lý (nano giây). */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /** @return lỗi đã gặp, null nếu thành công. */
+    public Exception getError() {
+        return error;
+    }
+
+    /** @return true nếu file được xử lý xong không lỗi. */
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
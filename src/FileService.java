@@ -1,14 +1,53 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Collections;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
- * Đọc/ghi dữ liệu CSV cho điện thoại và hóa đơn.
+ * Đọc/ghi dữ liệu CSV (và snapshot nhị phân) cho điện thoại, hóa đơn, khách hàng, nhân viên.
  */
 public class FileService {
+    // File nhỏ hơn ngưỡng này được nạp tuần tự (chi phí tạo luồng lớn hơn lợi ích)
+    private static final long MIN_PARALLEL_BYTES = 1 << 20;
+    // Kích thước tối đa một đoạn ánh xạ, giới hạn bộ nhớ tạm của mỗi đoạn đang parse
+    private static final long MAX_CHUNK_BYTES = 64L << 20;
+    // Tên loại bản ghi ghi trong header snapshot, chống nạp nhầm file
+    private static final String SNAPSHOT_KIND_PHONE = "phone";
+    private static final String SNAPSHOT_KIND_INVOICE = "invoice";
+    private static final String SNAPSHOT_KIND_CUSTOMER = "customer";
+    private static final String SNAPSHOT_KIND_EMPLOYEE = "employee";
+
+    /**
+     * Một việc đọc hoặc ghi trọn một file, chạy được song song với các file khác.
+     */
+    @FunctionalInterface
+    public interface FileTask {
+        /**
+         * @return số bản ghi đã đọc/ghi.
+         * @throws IOException nếu đọc/ghi file thất bại.
+         */
+        long run() throws IOException;
+    }
 
     /**
      * Đọc danh sách điện thoại từ file.
@@ -17,13 +56,20 @@ public class FileService {
      * @return danh sách điện thoại, rỗng nếu file chưa tồn tại.
      */
     public List<Phone> readPhones(Path path) throws IOException {
-        if (Files.notExists(path)) {
-            return Collections.emptyList();
-        }
-        return Files.readAllLines(path).stream()
-                .filter(line -> !line.isBlank())
-                .map(Phone::fromCsv)
-                .collect(Collectors.toList());
+        List<Phone> result = new ArrayList<>();
+        loadPhones(path, result::add);
+        return result;
+    }
+
+    /**
+     * Đọc dần file điện thoại, đẩy từng bản ghi cho sink ngay khi đọc xong dòng.
+     *
+     * @param path file nguồn (bỏ qua nếu chưa tồn tại).
+     * @param sink nơi nhận bản ghi, vd. kho lưu trữ của Manager.
+     * @return số bản ghi đã đọc.
+     */
+    public long loadPhones(Path path, Consumer<? super Phone> sink) throws IOException {
+        return load(path, Phone::fromCsv, sink);
     }
 
     /**
@@ -32,11 +78,8 @@ public class FileService {
      * @param path   file đích.
      * @param phones dữ liệu cần lưu.
      */
-    public void writePhones(Path path, List<Phone> phones) throws IOException {
-        ensureParent(path);
-        Files.write(path, phones.stream()
-                .map(Phone::toCsv)
-                .collect(Collectors.toList()));
+    public void writePhones(Path path, Collection<Phone> phones) throws IOException {
+        writeCsv(path, phones, Phone::toCsv);
     }
 
     /**
@@ -46,13 +89,38 @@ public class FileService {
      * @return danh sách hóa đơn (có thể rỗng).
      */
     public List<Invoice> readInvoices(Path path) throws IOException {
-        if (Files.notExists(path)) {
-            return Collections.emptyList();
-        }
-        return Files.readAllLines(path).stream()
-                .filter(line -> !line.isBlank())
-                .map(Invoice::fromCsv)
-                .collect(Collectors.toList());
+        List<Invoice> result = new ArrayList<>();
+        loadInvoices(path, result::add);
+        return result;
+    }
+
+    /**
+     * Đọc dần file hóa đơn, đẩy từng bản ghi cho sink ngay khi đọc xong dòng.
+     *
+     * @param path file nguồn (bỏ qua nếu chưa tồn tại).
+     * @param sink nơi nhận bản ghi, vd. kho lưu trữ của Manager.
+     * @return số bản ghi đã đọc.
+     */
+    public long loadInvoices(Path path, Consumer<? super Invoice> sink) throws IOException {
+        return load(path, Invoice::fromCsv, sink);
+    }
+
+    /**
+     * Nạp file hóa đơn lớn song song: ánh xạ file vào bộ nhớ (memory-mapped), chia thành các
+     * đoạn kết thúc đúng cuối dòng, parse các đoạn trên nhiều luồng rồi đẩy kết quả cho sink
+     * theo đúng thứ tự trong file, trên luồng gọi. Chỉ một số đoạn giới hạn được parse trước
+     * nên bộ nhớ tạm không tỉ lệ với kích thước file.
+     *
+     * @param path        file nguồn (bỏ qua nếu chưa tồn tại).
+     * @param sink        nơi nhận bản ghi, vd. kho lưu trữ của Manager.
+     * @param parallelism số luồng parse (1 để parse tuần tự trên luồng gọi).
+     * @return thống kê lần nạp (số dòng, tốc độ).
+     * @throws IOException              nếu đọc file thất bại hoặc bị ngắt.
+     * @throws IllegalArgumentException nếu dòng sai định dạng hoặc parallelism nhỏ hơn 1.
+     */
+    public LoadStats loadInvoicesParallel(Path path, Consumer<? super Invoice> sink, int parallelism)
+            throws IOException {
+        return loadMapped(path, Invoice::fromCsv, sink, parallelism);
     }
 
     /**
@@ -61,11 +129,8 @@ public class FileService {
      * @param path     file đích.
      * @param invoices dữ liệu cần lưu.
      */
-    public void writeInvoices(Path path, List<Invoice> invoices) throws IOException {
-        ensureParent(path);
-        Files.write(path, invoices.stream()
-                .map(Invoice::toCsv)
-                .collect(Collectors.toList()));
+    public void writeInvoices(Path path, Collection<Invoice> invoices) throws IOException {
+        writeCsv(path, invoices, Invoice::toCsv);
     }
 
     /**
@@ -75,13 +140,20 @@ public class FileService {
      * @return danh sách khách hàng (có thể rỗng).
      */
     public List<Customer> readCustomers(Path path) throws IOException {
-        if (Files.notExists(path)) {
-            return Collections.emptyList();
-        }
-        return Files.readAllLines(path).stream()
-                .filter(line -> !line.isBlank())
-                .map(Customer::fromCsv)
-                .collect(Collectors.toList());
+        List<Customer> result = new ArrayList<>();
+        loadCustomers(path, result::add);
+        return result;
+    }
+
+    /**
+     * Đọc dần file khách hàng, đẩy từng bản ghi cho sink ngay khi đọc xong dòng.
+     *
+     * @param path file nguồn (bỏ qua nếu chưa tồn tại).
+     * @param sink nơi nhận bản ghi, vd. kho lưu trữ của Manager.
+     * @return số bản ghi đã đọc.
+     */
+    public long loadCustomers(Path path, Consumer<? super Customer> sink) throws IOException {
+        return load(path, Customer::fromCsv, sink);
     }
 
     /**
@@ -90,11 +162,8 @@ public class FileService {
      * @param path      file đích.
      * @param customers dữ liệu cần lưu.
      */
-    public void writeCustomers(Path path, List<Customer> customers) throws IOException {
-        ensureParent(path);
-        Files.write(path, customers.stream()
-                .map(Customer::toCsv)
-                .collect(Collectors.toList()));
+    public void writeCustomers(Path path, Collection<Customer> customers) throws IOException {
+        writeCsv(path, customers, Customer::toCsv);
     }
 
     /**
@@ -104,13 +173,20 @@ public class FileService {
      * @return danh sách nhân viên (có thể rỗng).
      */
     public List<Employee> readEmployees(Path path) throws IOException {
-        if (Files.notExists(path)) {
-            return Collections.emptyList();
-        }
-        return Files.readAllLines(path).stream()
-                .filter(line -> !line.isBlank())
-                .map(Employee::fromCsv)
-                .collect(Collectors.toList());
+        List<Employee> result = new ArrayList<>();
+        loadEmployees(path, result::add);
+        return result;
+    }
+
+    /**
+     * Đọc dần file nhân viên, đẩy từng bản ghi cho sink ngay khi đọc xong dòng.
+     *
+     * @param path file nguồn (bỏ qua nếu chưa tồn tại).
+     * @param sink nơi nhận bản ghi, vd. kho lưu trữ của Manager.
+     * @return số bản ghi đã đọc.
+     */
+    public long loadEmployees(Path path, Consumer<? super Employee> sink) throws IOException {
+        return load(path, Employee::fromCsv, sink);
     }
 
     /**
@@ -119,11 +195,400 @@ public class FileService {
      * @param path      file đích.
      * @param employees dữ liệu cần lưu.
      */
-    public void writeEmployees(Path path, List<Employee> employees) throws IOException {
+    public void writeEmployees(Path path, Collection<Employee> employees) throws IOException {
+        writeCsv(path, employees, Employee::toCsv);
+    }
+
+    /**
+     * Nạp snapshot nhị phân điện thoại do {@link #writePhoneSnapshot} ghi.
+     *
+     * @param path file snapshot (bỏ qua nếu chưa tồn tại).
+     * @param sink nơi nhận bản ghi, vd. kho lưu trữ của Manager.
+     * @return số bản ghi đã đọc.
+     * @throws IllegalArgumentException nếu file không phải snapshot điện thoại hoặc bị hỏng.
+     */
+    public long loadPhoneSnapshot(Path path, Consumer<? super Phone> sink) throws IOException {
+        return loadSnapshot(path, SNAPSHOT_KIND_PHONE, Phone::readFrom, sink);
+    }
+
+    /**
+     * Ghi điện thoại xuống snapshot nhị phân.
+     *
+     * @param path   file đích.
+     * @param phones dữ liệu cần lưu.
+     */
+    public void writePhoneSnapshot(Path path, Collection<Phone> phones) throws IOException {
+        writeSnapshot(path, SNAPSHOT_KIND_PHONE, phones, Phone::writeTo);
+    }
+
+    /**
+     * Nạp snapshot nhị phân hóa đơn do {@link #writeInvoiceSnapshot} ghi.
+     *
+     * @param path file snapshot (bỏ qua nếu chưa tồn tại).
+     * @param sink nơi nhận bản ghi, vd. kho lưu trữ của Manager.
+     * @return số bản ghi đã đọc.
+     * @throws IllegalArgumentException nếu file không phải snapshot hóa đơn hoặc bị hỏng.
+     */
+    public long loadInvoiceSnapshot(Path path, Consumer<? super Invoice> sink) throws IOException {
+        return loadSnapshot(path, SNAPSHOT_KIND_INVOICE, Invoice::readFrom, sink);
+    }
+
+    /**
+     * Ghi hóa đơn xuống snapshot nhị phân.
+     *
+     * @param path     file đích.
+     * @param invoices dữ liệu cần lưu.
+     */
+    public void writeInvoiceSnapshot(Path path, Collection<Invoice> invoices) throws IOException {
+        writeSnapshot(path, SNAPSHOT_KIND_INVOICE, invoices, Invoice::writeTo);
+    }
+
+    /**
+     * Nạp snapshot nhị phân khách hàng do {@link #writeCustomerSnapshot} ghi.
+     *
+     * @param path file snapshot (bỏ qua nếu chưa tồn tại).
+     * @param sink nơi nhận bản ghi, vd. kho lưu trữ của Manager.
+     * @return số bản ghi đã đọc.
+     * @throws IllegalArgumentException nếu file không phải snapshot khách hàng hoặc bị hỏng.
+     */
+    public long loadCustomerSnapshot(Path path, Consumer<? super Customer> sink) throws IOException {
+        return loadSnapshot(path, SNAPSHOT_KIND_CUSTOMER, Customer::readFrom, sink);
+    }
+
+    /**
+     * Ghi khách hàng xuống snapshot nhị phân.
+     *
+     * @param path      file đích.
+     * @param customers dữ liệu cần lưu.
+     */
+    public void writeCustomerSnapshot(Path path, Collection<Customer> customers) throws IOException {
+        writeSnapshot(path, SNAPSHOT_KIND_CUSTOMER, customers, Customer::writeTo);
+    }
+
+    /**
+     * Nạp snapshot nhị phân nhân viên do {@link #writeEmployeeSnapshot} ghi.
+     *
+     * @param path file snapshot (bỏ qua nếu chưa tồn tại).
+     * @param sink nơi nhận bản ghi, vd. kho lưu trữ của Manager.
+     * @return số bản ghi đã đọc.
+     * @throws IllegalArgumentException nếu file không phải snapshot nhân viên hoặc bị hỏng.
+     */
+    public long loadEmployeeSnapshot(Path path, Consumer<? super Employee> sink) throws IOException {
+        return loadSnapshot(path, SNAPSHOT_KIND_EMPLOYEE, Employee::readFrom, sink);
+    }
+
+    /**
+     * Ghi nhân viên xuống snapshot nhị phân.
+     *
+     * @param path      file đích.
+     * @param employees dữ liệu cần lưu.
+     */
+    public void writeEmployeeSnapshot(Path path, Collection<Employee> employees) throws IOException {
+        writeSnapshot(path, SNAPSHOT_KIND_EMPLOYEE, employees, Employee::writeTo);
+    }
+
+    /**
+     * Đọc tuần tự các dòng của snapshot và đẩy cho sink; kiểm tra số dòng khớp header.
+     */
+    private <T> long loadSnapshot(Path path, String kind, SnapshotReader.RowReader<T> reader,
+                                  Consumer<? super T> sink) throws IOException {
+        if (Files.notExists(path)) {
+            return 0;
+        }
+        try (SnapshotReader in = new SnapshotReader(path, kind)) {
+            int rows = in.getRowCount();
+            for (int i = 0; i < rows; i++) {
+                sink.accept(reader.read(in));
+            }
+            in.expectEnd();
+            return rows;
+        }
+    }
+
+    /**
+     * Ghi snapshot vào file tạm cạnh file đích rồi đổi tên, để file cũ vẫn nguyên vẹn nếu ghi lỗi giữa chừng.
+     */
+    private <T> void writeSnapshot(Path path, String kind, Collection<T> items,
+                                   SnapshotWriter.RowWriter<? super T> writer) throws IOException {
+        ensureParent(path);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try (SnapshotWriter out = new SnapshotWriter(temp, kind)) {
+                out.writeAll(items, writer);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Ghi từng dòng CSV vào file tạm cạnh file đích, fsync rồi đổi tên nguyên tử: nơi đọc chỉ
+     * thấy file cũ hoặc file mới đầy đủ, kể cả khi tiến trình chết giữa chừng (checkpoint của
+     * nhật ký hóa đơn dựa vào điều này trước khi xoá nhật ký).
+     */
+    private <T> void writeCsv(Path path, Collection<T> items, Function<? super T, String> toCsv)
+            throws IOException {
         ensureParent(path);
-        Files.write(path, employees.stream()
-                .map(Employee::toCsv)
-                .collect(Collectors.toList()));
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 BufferedWriter writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8))) {
+                for (T item : items) {
+                    writer.write(toCsv.apply(item));
+                    writer.newLine();
+                }
+                writer.flush();
+                channel.force(false);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Đọc file từng dòng qua bộ đệm cố định (không giữ cả file trong bộ nhớ), bỏ dòng trống,
+     * chuyển mỗi dòng thành bản ghi bằng một {@link CsvCursor} dùng chung và đẩy ngay cho sink.
+     *
+     * @param path   file nguồn (bỏ qua nếu chưa tồn tại).
+     * @param parser hàm đọc các trường từ con trỏ đã đặt vào dòng.
+     * @param sink   nơi nhận bản ghi.
+     * @return số bản ghi đã đọc.
+     */
+    private <T> long load(Path path, Function<CsvCursor, T> parser, Consumer<? super T> sink) throws IOException {
+        if (Files.notExists(path)) {
+            return 0;
+        }
+        CsvCursor cursor = new CsvCursor();
+        long count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    sink.accept(parser.apply(cursor.reset(line)));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Chạy đồng thời các việc đọc/ghi, mỗi file một luồng, và chờ tất cả xong: tổng thời gian
+     * bằng file chậm nhất thay vì tổng các file. Lỗi của một file (IOException hoặc dữ liệu sai)
+     * được ghi vào kết quả của file đó, không dừng các file khác.
+     *
+     * @param tasks file -> việc cần làm (thứ tự duyệt của Map là thứ tự kết quả).
+     * @return kết quả từng file theo thứ tự của tasks.
+     */
+    public List<FileResult> runConcurrently(Map<Path, FileTask> tasks) {
+        List<FileResult> results = new ArrayList<>();
+        if (tasks.isEmpty()) {
+            return results;
+        }
+        ExecutorService workers = Executors.newFixedThreadPool(tasks.size());
+        try {
+            List<Path> paths = new ArrayList<>();
+            List<Future<FileResult>> futures = new ArrayList<>();
+            for (Map.Entry<Path, FileTask> entry : tasks.entrySet()) {
+                Path path = entry.getKey();
+                FileTask task = entry.getValue();
+                paths.add(path);
+                futures.add(workers.submit(() -> runTask(path, task)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                results.add(awaitResult(paths.get(i), futures.get(i)));
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        return results;
+    }
+
+    private static FileResult runTask(Path path, FileTask task) {
+        long started = System.nanoTime();
+        try {
+            long rows = task.run();
+            return new FileResult(path, rows, System.nanoTime() - started, null);
+        } catch (IOException | RuntimeException e) {
+            return new FileResult(path, 0, System.nanoTime() - started, e);
+        }
+    }
+
+    private static FileResult awaitResult(Path path, Future<FileResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new FileResult(path, 0, 0, new InterruptedIOException("Interrupted while processing file"));
+        } catch (ExecutionException e) {
+            // runTask đã bắt mọi Exception, còn lại chỉ có thể là Error
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Chia file thành các đoạn [start, end) kết thúc ngay sau ký tự xuống dòng, mỗi luồng parse
+     * một đoạn trên vùng ánh xạ riêng; luồng gọi lấy kết quả từng đoạn theo thứ tự file.
+     */
+    private <T> LoadStats loadMapped(Path path, Function<CsvCursor, T> parser, Consumer<? super T> sink,
+                                     int parallelism) throws IOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        long started = System.nanoTime();
+        if (Files.notExists(path)) {
+            return new LoadStats(0, 0, 0, System.nanoTime() - started);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < MIN_PARALLEL_BYTES) {
+                parallelism = 1;
+            }
+            long[] bounds = chunkBounds(channel, size, parallelism);
+            int chunks = bounds.length - 1;
+            long rows = 0;
+            if (parallelism == 1) {
+                for (int i = 0; i < chunks; i++) {
+                    for (T item : parseChunk(channel, bounds[i], bounds[i + 1], parser)) {
+                        sink.accept(item);
+                        rows++;
+                    }
+                }
+                return new LoadStats(rows, size, chunks, System.nanoTime() - started);
+            }
+            ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+            try {
+                // Cửa sổ các đoạn đang parse, lấy ra theo thứ tự file
+                ArrayDeque<Future<List<T>>> pending = new ArrayDeque<>();
+                int window = parallelism * 2;
+                int next = 0;
+                while (next < chunks || !pending.isEmpty()) {
+                    while (next < chunks && pending.size() < window) {
+                        long from = bounds[next];
+                        long to = bounds[next + 1];
+                        pending.add(workers.submit(() -> parseChunk(channel, from, to, parser)));
+                        next++;
+                    }
+                    for (T item : await(pending.poll())) {
+                        sink.accept(item);
+                        rows++;
+                    }
+                }
+            } finally {
+                workers.shutdownNow();
+            }
+            return new LoadStats(rows, size, chunks, System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Chọn ranh giới đoạn: chia đều theo byte (ít nhất 4 đoạn mỗi luồng, mỗi đoạn không quá
+     * {@link #MAX_CHUNK_BYTES}), rồi đẩy mỗi ranh giới tới ngay sau ký tự xuống dòng kế tiếp.
+     */
+    private static long[] chunkBounds(FileChannel channel, long size, int parallelism) throws IOException {
+        long target = parallelism == 1 ? MAX_CHUNK_BYTES : Math.max(1, size / (parallelism * 4L));
+        target = Math.min(target, MAX_CHUNK_BYTES);
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        long last = 0;
+        while (last + target < size) {
+            long bound = nextLineStart(channel, last + target, size);
+            if (bound >= size) {
+                break;
+            }
+            bounds.add(bound);
+            last = bound;
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * @return vị trí ngay sau ký tự xuống dòng đầu tiên từ position trở đi (size nếu không có).
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(8192);
+        long offset = position;
+        while (offset < size) {
+            probe.clear();
+            int read = channel.read(probe, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return size;
+    }
+
+    /**
+     * Parse một đoạn file: ánh xạ [from, to) rồi đọc từng dòng bằng con trỏ CSV riêng của đoạn.
+     */
+    private static <T> List<T> parseChunk(FileChannel channel, long from, long to,
+                                          Function<CsvCursor, T> parser) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        CsvCursor cursor = new CsvCursor();
+        List<T> items = new ArrayList<>();
+        int length = buffer.limit();
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (!isBlank(buffer, lineStart, lineEnd)) {
+                items.add(parser.apply(cursor.reset(buffer, lineStart, lineEnd)));
+            }
+            lineStart = lineEnd + 1;
+        }
+        return items;
+    }
+
+    private static boolean isBlank(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if ((buffer.get(i) & 0xFF) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Chờ một đoạn parse xong, trả lại đúng loại ngoại lệ mà đoạn đó gặp.
+     */
+    private static <T> List<T> await(Future<List<T>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading file");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(cause);
+        }
     }
 
     /**
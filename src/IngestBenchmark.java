@@ -0,0 +1,130 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Đo thời gian nạp dữ liệu vào {@link SinglyLinkedList} có chỉ mục khóa và vào
+ * {@link InvoiceManager} với 250k, 500k và 1M dòng, để kiểm tra chi phí nạp tăng tuyến tính
+ * (thời gian mỗi dòng gần như không đổi).
+ * <p>
+ * Đo bốn thao tác: thêm từng dòng bằng {@code appendRaw}, nối cả lô bằng {@code appendAll},
+ * xoá toàn bộ theo khóa qua chỉ mục nút đứng trước, và {@link InvoiceManager#loadAll} (đường
+ * nhập file thật: nối theo lô rồi dựng chỉ mục ngày, chỉ mục tên khách và các tổng cộng dồn).
+ * Mỗi cỡ chạy vài lần, lấy lần nhanh nhất. Heap nên đặt cố định ({@code -Xms} bằng
+ * {@code -Xmx}) để thời gian nới heap giữa chừng không lẫn vào số đo.
+ * <p>
+ * Chạy: {@code javac -d out src/*.java && java -Xms3g -Xmx3g -cp out IngestBenchmark}
+ */
+public class IngestBenchmark {
+    private static final int[] SIZES = {250_000, 500_000, 1_000_000};
+    private static final int RUNS = 3;
+    // Thời gian mỗi dòng ở cỡ lớn nhất vượt quá bội số này so với cỡ nhỏ nhất thì coi là không tuyến tính
+    private static final double MAX_PER_ROW_RATIO = 2.0;
+
+    /** Một thao tác cần đo trên n dòng đầu, trả về thời gian (nano giây). */
+    @FunctionalInterface
+    private interface Step {
+        long run(List<Invoice> rows);
+    }
+
+    public static void main(String[] args) {
+        List<Invoice> rows = generate(SIZES[SIZES.length - 1]);
+        boolean linear = true;
+        linear &= report("appendRaw", rows, IngestBenchmark::appendEach);
+        linear &= report("appendAll", rows, IngestBenchmark::appendBatch);
+        linear &= report("removeByKey", rows, IngestBenchmark::removeEach);
+        linear &= report("loadAll", rows, IngestBenchmark::loadManager);
+        System.out.println(linear ? "Ket qua: tuyen tinh" : "Ket qua: KHONG tuyen tinh");
+        if (!linear) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean report(String name, List<Invoice> rows, Step step) {
+        double firstPerRow = 0;
+        double lastPerRow = 0;
+        // Chạy khởi động để JIT biên dịch xong trước khi đo
+        step.run(rows.subList(0, SIZES[0]));
+        for (int n : SIZES) {
+            List<Invoice> slice = rows.subList(0, n);
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < RUNS; i++) {
+                // Dọn rác của lần chạy trước để không tính vào lần đo này
+                System.gc();
+                best = Math.min(best, step.run(slice));
+            }
+            double perRow = (double) best / n;
+            if (firstPerRow == 0) {
+                firstPerRow = perRow;
+            }
+            lastPerRow = perRow;
+            System.out.printf("%-12s n=%,9d  %6d ms  %6.1f ns/dong  x%.2f%n",
+                    name, n, best / 1_000_000, perRow, perRow / firstPerRow);
+        }
+        return lastPerRow / firstPerRow <= MAX_PER_ROW_RATIO;
+    }
+
+    private static long appendEach(List<Invoice> rows) {
+        SinglyLinkedList<Invoice> list = new SinglyLinkedList<>(Invoice::getId);
+        long start = System.nanoTime();
+        for (Invoice invoice : rows) {
+            list.appendRaw(invoice);
+        }
+        return check(list, rows.size(), System.nanoTime() - start);
+    }
+
+    private static long appendBatch(List<Invoice> rows) {
+        SinglyLinkedList<Invoice> list = new SinglyLinkedList<>(Invoice::getId);
+        long start = System.nanoTime();
+        list.appendAll(rows);
+        return check(list, rows.size(), System.nanoTime() - start);
+    }
+
+    private static long removeEach(List<Invoice> rows) {
+        SinglyLinkedList<Invoice> list = new SinglyLinkedList<>(Invoice::getId);
+        list.appendAll(rows);
+        long start = System.nanoTime();
+        // Xoá xen kẽ để mỗi lần xoá đều phải sửa liên kết của nút đứng trước
+        for (int i = 1; i < rows.size(); i += 2) {
+            list.removeByKey(rows.get(i).getId());
+        }
+        for (int i = 0; i < rows.size(); i += 2) {
+            list.removeByKey(rows.get(i).getId());
+        }
+        return check(list, 0, System.nanoTime() - start);
+    }
+
+    private static long loadManager(List<Invoice> rows) {
+        InvoiceManager manager = new InvoiceManager(LinkedStore.Engine.NODE);
+        long start = System.nanoTime();
+        try {
+            manager.loadAll(sink -> rows.forEach(sink));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (manager.getAll().size() != rows.size()) {
+            throw new IllegalStateException("Expected " + rows.size() + " rows but was " + manager.getAll().size());
+        }
+        return elapsed;
+    }
+
+    private static long check(SinglyLinkedList<Invoice> list, int expected, long elapsed) {
+        if (list.size() != expected) {
+            throw new IllegalStateException("Expected " + expected + " rows but was " + list.size());
+        }
+        return elapsed;
+    }
+
+    private static List<Invoice> generate(int n) {
+        List<Invoice> rows = new ArrayList<>(n);
+        LocalDate day = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < n; i++) {
+            rows.add(new Invoice("INV" + i, "Khach " + (i % 1000), "090" + (i % 10_000_000),
+                    "P" + (i % 50), 1 + i % 5, 1_000_000 + i % 100, 0, day.plusDays(i % 365), "NV" + (i % 20)));
+        }
+        return rows;
+    }
+}
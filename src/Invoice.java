@@ -1,3 +1,4 @@
+import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.Objects;
@@ -7,16 +8,22 @@ import java.util.Objects;
  */
 public class Invoice {
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE;
+    /** Từ điển dùng chung cho mã điện thoại được bán. */
+    public static final StringDictionary PHONE_IDS = new StringDictionary();
+    /** Từ điển dùng chung cho nhân viên phụ trách. */
+    public static final StringDictionary SALESPEOPLE = new StringDictionary();
 
     private final String id;
     private final String customerName;
     private final String customerPhone;
     private final String phoneId;
+    private final int phoneIdCode;
     private final int quantity;
     private final double unitPrice;
     private final double discountRate;
     private final LocalDate saleDate;
     private final String salesperson;
+    private final int salespersonCode;
 
     /**
      * @param id            mã hóa đơn.
@@ -42,12 +49,14 @@ public class Invoice {
         this.id = id;
         this.customerName = customerName;
         this.customerPhone = customerPhone;
-        this.phoneId = phoneId;
+        this.phoneIdCode = PHONE_IDS.encode(phoneId);
+        this.phoneId = PHONE_IDS.decode(phoneIdCode);
         this.quantity = quantity;
         this.unitPrice = unitPrice;
         this.discountRate = discountRate;
         this.saleDate = saleDate;
-        this.salesperson = salesperson;
+        this.salespersonCode = SALESPEOPLE.encode(salesperson);
+        this.salesperson = SALESPEOPLE.decode(salespersonCode);
     }
 
     /** @return mã hóa đơn. */
@@ -70,6 +79,11 @@ public class Invoice {
         return phoneId;
     }
 
+    /** @return mã của phoneId trong {@link #PHONE_IDS}. */
+    public int getPhoneIdCode() {
+        return phoneIdCode;
+    }
+
     /** @return số lượng mua. */
     public int getQuantity() {
         return quantity;
@@ -95,6 +109,11 @@ public class Invoice {
         return salesperson;
     }
 
+    /** @return mã nhân viên trong {@link #SALESPEOPLE}. */
+    public int getSalespersonCode() {
+        return salespersonCode;
+    }
+
     /**
      * Thành tiền trước khi trừ chiết khấu.
      *
@@ -120,15 +139,15 @@ public class Invoice {
      */
     public String toCsv() {
         return String.join(",",
-                id,
-                customerName,
-                customerPhone,
-                phoneId,
+                CsvCursor.quote(id),
+                CsvCursor.quote(customerName),
+                CsvCursor.quote(customerPhone),
+                CsvCursor.quote(phoneId),
                 String.valueOf(quantity),
                 String.valueOf(unitPrice),
                 String.valueOf(discountRate),
                 saleDate.format(DATE_FORMAT),
-                salesperson);
+                CsvCursor.quote(salesperson));
     }
 
     /**
@@ -138,20 +157,67 @@ public class Invoice {
      * @return hóa đơn tương ứng.
      */
     public static Invoice fromCsv(String line) {
-        String[] parts = line.split(",");
-        if (parts.length < 9) {
-            throw new IllegalArgumentException("Invalid invoice line: " + line);
+        return fromCsv(new CsvCursor().reset(line));
+    }
+
+    /**
+     * Đọc hóa đơn từ dòng đang trỏ bởi con trỏ CSV (dùng lại được cho nhiều dòng khi nạp file).
+     *
+     * @param cursor con trỏ đã {@link CsvCursor#reset đặt} vào dòng cần đọc.
+     * @return hóa đơn tương ứng.
+     * @throws IllegalArgumentException nếu dòng thiếu trường hoặc sai định dạng.
+     */
+    public static Invoice fromCsv(CsvCursor cursor) {
+        try {
+            return new Invoice(
+                    cursor.nextString(),
+                    cursor.nextString(),
+                    cursor.nextString(),
+                    cursor.nextString(),
+                    cursor.nextInt(),
+                    cursor.nextDouble(),
+                    cursor.nextDouble(),
+                    cursor.nextDate(),
+                    cursor.nextString());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid invoice line: " + cursor.line(), e);
         }
+    }
+
+    /**
+     * Ghi hóa đơn vào snapshot nhị phân, cùng thứ tự trường với {@link #toCsv()}.
+     *
+     * @param out snapshot đang ghi.
+     */
+    public void writeTo(SnapshotWriter out) throws IOException {
+        out.writeString(id);
+        out.writeString(customerName);
+        out.writeString(customerPhone);
+        out.writeString(phoneId);
+        out.writeInt(quantity);
+        out.writeDouble(unitPrice);
+        out.writeDouble(discountRate);
+        out.writeDate(saleDate);
+        out.writeString(salesperson);
+    }
+
+    /**
+     * Đọc hóa đơn do {@link #writeTo} ghi.
+     *
+     * @param in snapshot đang đọc.
+     * @return hóa đơn tương ứng.
+     */
+    public static Invoice readFrom(SnapshotReader in) throws IOException {
         return new Invoice(
-                parts[0].trim(),
-                parts[1].trim(),
-                parts[2].trim(),
-                parts[3].trim(),
-                Integer.parseInt(parts[4].trim()),
-                Double.parseDouble(parts[5].trim()),
-                Double.parseDouble(parts[6].trim()),
-                LocalDate.parse(parts[7].trim(), DATE_FORMAT),
-                parts[8].trim());
+                in.readString(),
+                in.readString(),
+                in.readString(),
+                in.readString(),
+                in.readInt(),
+                in.readDouble(),
+                in.readDouble(),
+                in.readDate(),
+                in.readString());
     }
 
     @Override
@@ -0,0 +1,163 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chỉ mục phụ theo ngày bán cho danh sách hóa đơn: skip list khóa (số ngày epoch, thứ tự trong
+ * danh sách), tương đương các "xô" theo từng ngày được sắp sẵn. Truy vấn khoảng ngày chỉ chạm
+ * các ngày giao với khoảng, O(log n + k); sắp xếp theo ngày là một lượt duyệt theo thứ tự.
+ * Cùng ngày thì hóa đơn đứng trước trong danh sách chính được xếp trước (như sắp xếp ổn định).
+ * <p>
+ * Chỉ mục chỉ giữ mã hóa đơn (không giữ đối tượng) để không kéo dữ liệu của
+ * {@link OffHeapInvoiceStore} trở lại heap; nơi gọi tra mã ra hóa đơn khi cần.
+ * Skip list không khoá nên nhiều quầy có thể thêm/xoá đồng thời. Mục được so khớp theo chính
+ * chuỗi mã của hóa đơn trước, nếu không có thì theo giá trị mã (kho dựng lại đối tượng khi đọc).
+ */
+public class InvoiceDateIndex {
+
+    /**
+     * Khóa sắp xếp: ngày bán rồi tới số thứ tự.
+     */
+    private static final class DateKey {
+        private static final Comparator<DateKey> ORDER = Comparator
+                .comparingLong((DateKey key) -> key.day)
+                .thenComparingLong(key -> key.seq);
+
+        private final long day;
+        private final long seq;
+
+        private DateKey(long day, long seq) {
+            this.day = day;
+            this.seq = seq;
+        }
+    }
+
+    private final ConcurrentSkipListMap<DateKey, String> byDate = new ConcurrentSkipListMap<>(DateKey.ORDER);
+    private final AtomicLong nextSeq = new AtomicLong();
+
+    /**
+     * Thêm hóa đơn vào sau mọi hóa đơn cùng ngày.
+     *
+     * @param invoice hóa đơn cần thêm.
+     */
+    public void add(Invoice invoice) {
+        byDate.put(new DateKey(invoice.getSaleDate().toEpochDay(), nextSeq.getAndIncrement()), invoice.getId());
+    }
+
+    /**
+     * Gỡ hóa đơn khỏi chỉ mục. Nếu không thấy đúng đối tượng thì gỡ mọi mục cùng mã trong ngày đó.
+     *
+     * @param invoice hóa đơn đã bị xoá khỏi danh sách chính.
+     */
+    public void remove(Invoice invoice) {
+        DateKey key = find(invoice);
+        if (key != null) {
+            byDate.remove(key);
+            return;
+        }
+        dayOf(invoice.getSaleDate()).values().removeIf(id -> id.equalsIgnoreCase(invoice.getId()));
+    }
+
+    /**
+     * Thay hóa đơn cũ bằng dữ liệu mới, giữ nguyên thứ tự trong danh sách chính.
+     * Không làm gì nếu hóa đơn cũ đã bị gỡ (vd. bị xoá đồng thời).
+     *
+     * @param old     hóa đơn trước khi sửa.
+     * @param updated hóa đơn sau khi sửa.
+     */
+    public void replace(Invoice old, Invoice updated) {
+        DateKey key = find(old);
+        if (key == null) {
+            key = findById(old);
+        }
+        if (key != null && byDate.remove(key) != null) {
+            byDate.put(new DateKey(updated.getSaleDate().toEpochDay(), key.seq), updated.getId());
+        }
+    }
+
+    /**
+     * Dựng lại chỉ mục theo thứ tự hiện tại của danh sách chính; không gọi đồng thời với ghi.
+     *
+     * @param invoices dữ liệu theo thứ tự danh sách.
+     */
+    public void rebuild(Iterable<Invoice> invoices) {
+        byDate.clear();
+        nextSeq.set(0);
+        for (Invoice invoice : invoices) {
+            add(invoice);
+        }
+    }
+
+    /**
+     * @param start ngày bắt đầu (bao gồm).
+     * @param end   ngày kết thúc (bao gồm).
+     * @return mã các hóa đơn trong khoảng, theo ngày tăng dần.
+     */
+    public List<String> range(LocalDate start, LocalDate end) {
+        if (start.isAfter(end)) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(byDate.subMap(
+                new DateKey(start.toEpochDay(), Long.MIN_VALUE), true,
+                new DateKey(end.toEpochDay(), Long.MAX_VALUE), true).values());
+    }
+
+    /** @return mã mọi hóa đơn theo ngày tăng dần. */
+    public List<String> ascending() {
+        return new ArrayList<>(byDate.values());
+    }
+
+    /**
+     * Duyệt ngược theo ngày; trong cùng một ngày vẫn giữ thứ tự danh sách như sắp xếp ổn định.
+     *
+     * @return mã mọi hóa đơn theo ngày giảm dần.
+     */
+    public List<String> descending() {
+        List<String> result = new ArrayList<>(byDate.size());
+        int groupStart = 0;
+        long groupDay = 0;
+        for (Map.Entry<DateKey, String> entry : byDate.descendingMap().entrySet()) {
+            if (result.isEmpty() || entry.getKey().day != groupDay) {
+                Collections.reverse(result.subList(groupStart, result.size()));
+                groupStart = result.size();
+                groupDay = entry.getKey().day;
+            }
+            result.add(entry.getValue());
+        }
+        Collections.reverse(result.subList(groupStart, result.size()));
+        return result;
+    }
+
+    /**
+     * So sánh tham chiếu có chủ ý: phân biệt mục của chính hóa đơn này với mục tạm của một
+     * lần thêm trùng mã đang chạy đồng thời.
+     */
+    private DateKey find(Invoice invoice) {
+        for (Map.Entry<DateKey, String> entry : dayOf(invoice.getSaleDate()).entrySet()) {
+            if (entry.getValue() == invoice.getId()) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    private DateKey findById(Invoice invoice) {
+        for (Map.Entry<DateKey, String> entry : dayOf(invoice.getSaleDate()).entrySet()) {
+            if (entry.getValue().equalsIgnoreCase(invoice.getId())) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    private ConcurrentNavigableMap<DateKey, String> dayOf(LocalDate date) {
+        long day = date.toEpochDay();
+        return byDate.subMap(new DateKey(day, Long.MIN_VALUE), true, new DateKey(day, Long.MAX_VALUE), true);
+    }
+}
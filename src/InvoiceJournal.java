@@ -0,0 +1,508 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Nhật ký chỉ ghi nối (append-only) các thay đổi hóa đơn: mỗi lần thêm/sửa/xoá/hoàn tác chỉ
+ * ghi thêm một bản ghi nhỏ thay vì ghi lại cả file hóa đơn. Khi khởi động, nhật ký được phát
+ * lại lên checkpoint gần nhất (file CSV/snapshot); {@link #checkpoint} ghi checkpoint mới rồi
+ * xoá rỗng nhật ký (compaction).
+ * <p>
+ * Bản ghi: {@code length, crc32, op, id, [hóa đơn]}. Bản ghi cuối bị ghi dở (mất điện giữa
+ * chừng) bị phát hiện qua độ dài/CRC và cắt bỏ khi mở lại. Mỗi bản ghi mô tả trạng thái cuối
+ * của một mã, nên phát lại lên checkpoint đã chứa sẵn các thay đổi đó vẫn cho cùng kết quả.
+ * <p>
+ * Các bản ghi được gom trong bộ nhớ và ghi theo lô (group commit); {@link SyncPolicy} chọn
+ * lúc nào gọi fsync. Ghi nhận bản ghi ({@link #append}) chỉ mã hoá vào lô đang gom dưới khoá
+ * của nhật ký và trả về số thứ tự; việc ghi kênh và fsync ({@link #sync}) chạy dưới một khoá
+ * ghi riêng, không giữ khoá nhật ký, nên trong lúc một luồng đang fsync các luồng khác vẫn ghi
+ * nhận được bản ghi mới. Luồng chờ tiếp theo ghi một lần cả lô đã dồn lại, và mỗi luồng chỉ
+ * chờ tới khi bản ghi của chính mình đã xuống đĩa.
+ */
+public class InvoiceJournal implements Closeable {
+    /** Thuộc tính hệ thống chọn chính sách fsync, vd. -Djournal.sync=batch. */
+    public static final String SYNC_PROPERTY = "journal.sync";
+    /** Thuộc tính hệ thống đặt số bản ghi mỗi lô ghi. */
+    public static final String BATCH_SIZE_PROPERTY = "journal.batchSize";
+    /** Thuộc tính hệ thống đặt số bản ghi tối đa trước khi cần compaction. */
+    public static final String COMPACT_AFTER_PROPERTY = "journal.compactAfter";
+
+    private static final int MAGIC = 0x504A524E; // "PJRN"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = Integer.BYTES * 2;
+    // Độ dài + CRC đứng trước mỗi bản ghi
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES * 2;
+    // Bản ghi dài hơn mức này chắc chắn là dữ liệu hỏng
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+    private static final int DEFAULT_BATCH_SIZE = 32;
+    private static final int DEFAULT_COMPACT_AFTER = 10_000;
+
+    /**
+     * Loại thay đổi được ghi.
+     */
+    public enum Op {
+        ADD, UPDATE, DELETE, UNDO
+    }
+
+    /**
+     * Thời điểm đẩy dữ liệu xuống đĩa (fsync).
+     */
+    public enum SyncPolicy {
+        /** Ghi và fsync sau mỗi thay đổi: không mất thay đổi nào khi mất điện (mặc định). */
+        ALWAYS,
+        /** Ghi và fsync một lần mỗi lô hoặc khi {@link #commit()}; có thể mất lô đang gom. */
+        BATCH,
+        /** Ghi theo lô nhưng không fsync, để hệ điều hành tự đẩy xuống đĩa. */
+        NEVER;
+
+        /**
+         * Đọc chính sách được chọn qua thuộc tính hệ thống.
+         *
+         * @return chính sách tương ứng, ALWAYS nếu chưa cấu hình.
+         */
+        public static SyncPolicy fromSystemProperty() {
+            String value = System.getProperty(SYNC_PROPERTY);
+            if (value == null || value.isBlank()) {
+                return ALWAYS;
+            }
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Một thay đổi đọc lại từ nhật ký.
+     */
+    public static final class Entry {
+        private final Op op;
+        private final String id;
+        private final Invoice invoice;
+
+        private Entry(Op op, String id, Invoice invoice) {
+            this.op = op;
+            this.id = id;
+            this.invoice = invoice;
+        }
+
+        /** @return loại thay đổi. */
+        public Op getOp() {
+            return op;
+        }
+
+        /** @return mã hóa đơn bị thay đổi (mã cũ với UPDATE). */
+        public String getId() {
+            return id;
+        }
+
+        /** @return dữ liệu sau thay đổi, null với DELETE. */
+        public Invoice getInvoice() {
+            return invoice;
+        }
+    }
+
+    private final FileChannel channel;
+    private final SyncPolicy policy;
+    private final int batchSize;
+    private final int compactAfter;
+    private final long replayed;
+    private final long discardedBytes;
+    private final CRC32 crc = new CRC32();
+    // Khoá ghi kênh, luôn lấy trước khoá nhật ký
+    private final Object writeLock = new Object();
+    // Các bản ghi đang gom, chưa ghi xuống kênh
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    // Bộ đệm đổi chỗ với pending khi ghi, để lô mới gom tiếp trong lúc lô cũ đang ghi
+    private ByteBuffer spare = ByteBuffer.allocate(64 * 1024);
+    private int pendingRecords;
+    // Số thứ tự của bản ghi mới nhất đã nhận
+    private long appended;
+    // Số thứ tự của bản ghi mới nhất đã ghi xuống kênh (và fsync nếu chính sách yêu cầu)
+    private volatile long written;
+    // Số bản ghi trong nhật ký kể từ checkpoint gần nhất (kể cả đang gom)
+    private long records;
+
+    private InvoiceJournal(FileChannel channel, SyncPolicy policy, int batchSize, int compactAfter,
+                           long replayed, long discardedBytes) {
+        this.channel = channel;
+        this.policy = policy;
+        this.batchSize = batchSize;
+        this.compactAfter = compactAfter;
+        this.replayed = replayed;
+        this.discardedBytes = discardedBytes;
+        this.records = replayed;
+    }
+
+    /**
+     * Mở nhật ký với cấu hình từ thuộc tính hệ thống {@code journal.sync},
+     * {@code journal.batchSize} và {@code journal.compactAfter}.
+     *
+     * @see #open(Path, SyncPolicy, int, int, Consumer)
+     */
+    public static InvoiceJournal open(Path path, Consumer<? super Entry> replay) throws IOException {
+        return open(path, SyncPolicy.fromSystemProperty(),
+                Integer.getInteger(BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE),
+                Integer.getInteger(COMPACT_AFTER_PROPERTY, DEFAULT_COMPACT_AFTER),
+                replay);
+    }
+
+    /**
+     * Mở (hoặc tạo) nhật ký, phát lại mọi bản ghi hợp lệ theo thứ tự rồi cắt bỏ phần đuôi ghi dở
+     * để các bản ghi mới nối tiếp ngay sau.
+     *
+     * @param path         file nhật ký.
+     * @param policy       chính sách fsync.
+     * @param batchSize    số bản ghi mỗi lô (bỏ qua với ALWAYS).
+     * @param compactAfter số bản ghi để {@link #needsCompaction()} trả về true.
+     * @param replay       nơi nhận các thay đổi đã ghi, vd. {@code invoiceManager::applyJournalEntry}.
+     * @throws IllegalArgumentException nếu file không phải nhật ký hóa đơn hoặc tham số không dương.
+     */
+    public static InvoiceJournal open(Path path, SyncPolicy policy, int batchSize, int compactAfter,
+                                      Consumer<? super Entry> replay) throws IOException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        if (compactAfter < 1) {
+            throw new IllegalArgumentException("Compaction threshold must be positive: " + compactAfter);
+        }
+        Path parent = path.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                // File mới (hoặc header ghi dở): bắt đầu nhật ký rỗng
+                writeHeader(channel);
+                return new InvoiceJournal(channel, policy, batchSize, compactAfter, 0, size);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(channel, header, 0);
+            if (header.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("Not an invoice journal: " + path);
+            }
+            if (header.getInt(Integer.BYTES) != VERSION) {
+                throw new IllegalArgumentException("Unsupported journal version: " + header.getInt(Integer.BYTES));
+            }
+            long[] end = {HEADER_BYTES};
+            long count = replay(channel, size, end, replay);
+            if (end[0] < size) {
+                channel.truncate(end[0]);
+                channel.force(false);
+            }
+            channel.position(end[0]);
+            return new InvoiceJournal(channel, policy, batchSize, compactAfter, count, size - end[0]);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Ghi nhận một thay đổi vào lô đang gom (không ghi đĩa, không chờ). Thứ tự số thứ tự là thứ
+     * tự bản ghi trong file; gọi {@link #sync} với số trả về để ghi theo chính sách.
+     *
+     * @param op      loại thay đổi.
+     * @param id      mã hóa đơn bị thay đổi (mã cũ với UPDATE).
+     * @param invoice dữ liệu sau thay đổi, null với DELETE.
+     * @return số thứ tự của bản ghi.
+     */
+    public synchronized long append(Op op, String id, Invoice invoice) {
+        encode(op, id, invoice);
+        return appended;
+    }
+
+    /**
+     * Ghi các bản ghi đã ghi nhận theo chính sách: với ALWAYS chờ tới khi bản ghi có số thứ tự
+     * sequence (và mọi bản ghi trước nó) đã được ghi và fsync, có thể cùng lượt với bản ghi của
+     * luồng khác; các chính sách khác chỉ ghi khi lô đang gom đã đủ, còn lại trả về ngay.
+     * Không được gọi khi đang giữ khoá mà luồng ghi nhận bản ghi khác cần tới.
+     *
+     * @param sequence số thứ tự trả về từ {@link #append}.
+     */
+    public void sync(long sequence) throws IOException {
+        if (written >= sequence) {
+            return;
+        }
+        if (policy != SyncPolicy.ALWAYS) {
+            synchronized (this) {
+                if (pendingRecords < batchSize) {
+                    return;
+                }
+            }
+        }
+        flush(sequence);
+    }
+
+    /**
+     * Mã hoá một bản ghi vào lô đang gom (chưa ghi xuống file).
+     */
+    private void encode(Op op, String id, Invoice invoice) {
+        int start = pending.position();
+        ensure(RECORD_HEADER_BYTES + 1);
+        pending.position(start + RECORD_HEADER_BYTES);
+        pending.put((byte) op.ordinal());
+        putString(id);
+        if (op != Op.DELETE) {
+            putString(invoice.getId());
+            putString(invoice.getCustomerName());
+            putString(invoice.getCustomerPhone());
+            putString(invoice.getPhoneId());
+            ensure(Integer.BYTES + Double.BYTES * 2 + Long.BYTES);
+            pending.putInt(invoice.getQuantity());
+            pending.putDouble(invoice.getUnitPrice());
+            pending.putDouble(invoice.getDiscountRate());
+            pending.putLong(invoice.getSaleDate().toEpochDay());
+            putString(invoice.getSalesperson());
+        }
+        int length = pending.position() - start - RECORD_HEADER_BYTES;
+        crc.reset();
+        crc.update(pending.array(), start + RECORD_HEADER_BYTES, length);
+        pending.putInt(start, length);
+        pending.putInt(start + Integer.BYTES, (int) crc.getValue());
+        pendingRecords++;
+        appended++;
+        records++;
+    }
+
+    /**
+     * Ghi lô đang gom xuống file (fsync trừ khi chính sách là NEVER).
+     */
+    public void commit() throws IOException {
+        long last;
+        synchronized (this) {
+            last = appended;
+        }
+        flush(last);
+    }
+
+    /**
+     * Ghi mọi bản ghi đã ghi nhận nếu bản ghi sequence chưa được ghi. Lô đang gom được đổi chỗ
+     * với bộ đệm rảnh dưới khoá nhật ký rồi ghi ngoài khoá đó; nếu ghi lỗi, phần chưa ghi được
+     * đặt lại trước các bản ghi mới để lần ghi sau nối tiếp đúng thứ tự.
+     */
+    private void flush(long sequence) throws IOException {
+        synchronized (writeLock) {
+            if (written >= sequence) {
+                return;
+            }
+            ByteBuffer batch;
+            int batchRecords;
+            long last;
+            synchronized (this) {
+                batch = pending;
+                batchRecords = pendingRecords;
+                last = appended;
+                pending = spare;
+                pendingRecords = 0;
+            }
+            batch.flip();
+            try {
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                if (policy != SyncPolicy.NEVER) {
+                    channel.force(false);
+                }
+                written = last;
+            } catch (IOException e) {
+                synchronized (this) {
+                    ByteBuffer merged = ByteBuffer.allocate(
+                            Math.max(pending.capacity(), batch.remaining() + pending.position()));
+                    merged.put(batch);
+                    pending.flip();
+                    merged.put(pending);
+                    pending.clear();
+                    spare = pending;
+                    pending = merged;
+                    pendingRecords += batchRecords;
+                }
+                throw e;
+            }
+            batch.clear();
+            synchronized (this) {
+                spare = batch;
+            }
+        }
+    }
+
+    /**
+     * Ghi checkpoint mới rồi xoá rỗng nhật ký. Giữ khoá ghi và khoá nhật ký trong suốt quá
+     * trình, nên các thay đổi đi qua nhật ký (xem {@link InvoiceManager#attachJournal}) phải chờ
+     * ở bước ghi nhận: mọi thay đổi đã ghi nhận đều có trong checkpoint, còn thay đổi đã áp dụng
+     * nhưng chưa kịp ghi nhận sẽ được ghi lại sau checkpoint (phát lại vẫn cho cùng kết quả).
+     * Nếu ghi checkpoint lỗi, nhật ký được giữ nguyên.
+     *
+     * @param writeCheckpoint việc ghi toàn bộ hóa đơn hiện tại ra file checkpoint; phải ghi nguyên
+     *                        tử (file tạm rồi đổi tên) vì nhật ký bị xoá ngay sau đó.
+     * @return số bản ghi checkpoint đã ghi.
+     */
+    public long checkpoint(FileService.FileTask writeCheckpoint) throws IOException {
+        synchronized (writeLock) {
+            synchronized (this) {
+                commit();
+                long rows = writeCheckpoint.run();
+                channel.truncate(HEADER_BYTES);
+                channel.position(HEADER_BYTES);
+                channel.force(false);
+                records = 0;
+                return rows;
+            }
+        }
+    }
+
+    /** @return true nếu nhật ký đã đủ dài để nên {@link #checkpoint compaction}. */
+    public synchronized boolean needsCompaction() {
+        return records >= compactAfter;
+    }
+
+    /** @return số bản ghi kể từ checkpoint gần nhất. */
+    public synchronized long getRecordCount() {
+        return records;
+    }
+
+    /** @return số bản ghi đã phát lại khi mở. */
+    public long getReplayedCount() {
+        return replayed;
+    }
+
+    /** @return số byte đuôi ghi dở bị cắt bỏ khi mở (0 nếu nhật ký nguyên vẹn). */
+    public long getDiscardedBytes() {
+        return discardedBytes;
+    }
+
+    /**
+     * Ghi nốt lô đang gom rồi đóng file.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            try {
+                commit();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            ensure(Integer.BYTES);
+            pending.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensure(Integer.BYTES + bytes.length);
+        pending.putInt(bytes.length);
+        pending.put(bytes);
+    }
+
+    private void ensure(int bytes) {
+        if (pending.remaining() < bytes) {
+            int capacity = Math.max(pending.capacity() * 2, pending.position() + bytes);
+            ByteBuffer grown = ByteBuffer.allocate(capacity);
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.position(HEADER_BYTES);
+        channel.force(false);
+    }
+
+    /**
+     * Phát lại các bản ghi hợp lệ từ sau header, dừng ở bản ghi đầu tiên thiếu byte hoặc sai CRC.
+     *
+     * @param end vào: vị trí bắt đầu; ra: vị trí ngay sau bản ghi hợp lệ cuối cùng.
+     * @return số bản ghi đã phát lại.
+     */
+    private static long replay(FileChannel channel, long size, long[] end, Consumer<? super Entry> sink)
+            throws IOException {
+        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        ByteBuffer payload = ByteBuffer.allocate(4096);
+        CRC32 checksum = new CRC32();
+        long count = 0;
+        long position = end[0];
+        while (size - position >= RECORD_HEADER_BYTES) {
+            recordHeader.clear();
+            readFully(channel, recordHeader, position);
+            int length = recordHeader.getInt(0);
+            if (length < 1 || length > MAX_RECORD_BYTES || length > size - position - RECORD_HEADER_BYTES) {
+                break;
+            }
+            if (payload.capacity() < length) {
+                payload = ByteBuffer.allocate(Math.max(length, payload.capacity() * 2));
+            }
+            payload.clear().limit(length);
+            readFully(channel, payload, position + RECORD_HEADER_BYTES);
+            checksum.reset();
+            checksum.update(payload.array(), 0, length);
+            if ((int) checksum.getValue() != recordHeader.getInt(Integer.BYTES)) {
+                break;
+            }
+            payload.flip();
+            sink.accept(decode(payload));
+            count++;
+            position += RECORD_HEADER_BYTES + length;
+        }
+        end[0] = position;
+        return count;
+    }
+
+    private static Entry decode(ByteBuffer payload) {
+        int opCode = payload.get();
+        if (opCode < 0 || opCode >= Op.values().length) {
+            throw new IllegalArgumentException("Invalid journal operation: " + opCode);
+        }
+        Op op = Op.values()[opCode];
+        String id = getString(payload);
+        if (op == Op.DELETE) {
+            return new Entry(op, id, null);
+        }
+        Invoice invoice = new Invoice(
+                getString(payload),
+                getString(payload),
+                getString(payload),
+                getString(payload),
+                payload.getInt(),
+                payload.getDouble(),
+                payload.getDouble(),
+                LocalDate.ofEpochDay(payload.getLong()),
+                getString(payload));
+        return new Entry(op, id, invoice);
+    }
+
+    private static String getString(ByteBuffer payload) {
+        int length = payload.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(payload.array(), payload.position(), length, StandardCharsets.UTF_8);
+        payload.position(payload.position() + length);
+        return value;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of journal");
+            }
+        }
+    }
+}
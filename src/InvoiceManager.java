@@ -1,30 +1,116 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * Quản lý danh sách hóa đơn: CRUD, tìm kiếm, sắp xếp, thống kê doanh thu.
+ * Với bộ máy {@link LinkedStore.Engine#CONCURRENT}, nhiều quầy có thể gọi thêm/xoá/đọc
+ * cùng lúc: danh sách chính không khoá, ngăn xếp hoàn tác và hàng đợi in được
+ * khoá riêng từng cấu trúc (không có khoá toàn cục). Mỗi thao tác ghi giữ khoá theo mã
+ * ({@link KeyLocks}) từ lúc đổi danh sách chính tới khi các chỉ mục đã cập nhật xong, nên hai
+ * thao tác trên cùng một mã (vd. xoá rồi thêm lại) không làm lệch chỉ mục, còn các mã khác nhau
+ * vẫn ghi song song. Mã lấy từ các chỉ mục luôn được tra lại trên danh sách chính, nên mục của
+ * hóa đơn vừa bị xoá đồng thời bị bỏ qua.
+ * <p>
+ * Đặt {@code -Dinvoice.offheap=true} để lưu hóa đơn ngoài heap bằng {@link OffHeapInvoiceStore}
+ * (ưu tiên hơn {@code storage.engine}, chỉ dùng đơn luồng). Khi đó không dựng chỉ mục ngày và
+ * chỉ mục tên khách (mỗi hóa đơn vài trăm byte heap, ngược với mục đích đưa dữ liệu ra khỏi
+ * heap): tìm theo tên, theo khoảng ngày và sắp xếp theo ngày duyệt thẳng kho, O(n).
  */
 public class InvoiceManager {
-    private final SinglyLinkedList<Invoice> invoices = new SinglyLinkedList<>();
+    /** Thuộc tính hệ thống bật kho hóa đơn ngoài heap. */
+    public static final String OFF_HEAP_PROPERTY = "invoice.offheap";
+
+    private final LinkedStore<Invoice> invoices;
     // Ngăn xếp lưu các hóa đơn đã xóa để có thể hoàn tác
     private final SimpleStack<Invoice> deletedInvoices = new SimpleStack<>();
     // Hàng đợi hóa đơn cần in/xử lý
     private final SimpleQueue<Invoice> pendingPrint = new SimpleQueue<>();
+    // Chỉ mục phụ theo ngày bán, luôn đồng bộ với invoices; null với kho ngoài heap
+    private final InvoiceDateIndex dateIndex;
+    // Chỉ mục trigram trên tên khách, cập nhật sau khi danh sách chính đã đổi; null với kho ngoài heap
+    private final TrigramIndex<Invoice> customerNameIndex;
+    // Chỉ mục sắp theo giá trị và số lượng cho các truy vấn cực trị
+    private final SortedFieldIndex<Invoice> netTotalIndex;
+    private final SortedFieldIndex<Invoice> quantityIndex;
+    // Các chỉ mục cập nhật sau khi danh sách chính đã đổi (chỉ mục ngày cần hóa đơn cũ nên cập nhật riêng)
+    private final List<SecondaryIndex<Invoice>> indexes;
+    // Các tổng cộng dồn, khoá chung trên revenue
+    private final RunningSum revenue = new RunningSum();
+    private final RunningSum discountAmount = new RunningSum();
+    private long quantitySold;
+    // Khoá theo mã, giữ trong lúc đổi invoices và các chỉ mục
+    private final KeyLocks keyLocks = new KeyLocks();
+    // Nhật ký ghi nối các thay đổi, null nếu không dùng
+    private volatile InvoiceJournal journal;
+
+    /**
+     * Tạo Manager với kho chọn qua thuộc tính hệ thống {@code invoice.offheap}
+     * hoặc {@code storage.engine}.
+     */
+    public InvoiceManager() {
+        this(Boolean.getBoolean(OFF_HEAP_PROPERTY)
+                ? new OffHeapInvoiceStore()
+                : LinkedStore.create(LinkedStore.Engine.fromSystemProperty(), Invoice::getId));
+    }
+
+    /**
+     * @param engine bộ máy lưu trữ danh sách hóa đơn.
+     */
+    public InvoiceManager(LinkedStore.Engine engine) {
+        this(LinkedStore.create(engine, Invoice::getId));
+    }
+
+    /**
+     * @param store kho hóa đơn rỗng, có chỉ mục theo mã hóa đơn.
+     */
+    public InvoiceManager(LinkedStore<Invoice> store) {
+        this.invoices = store;
+        this.netTotalIndex = new SortedFieldIndex<>(store, Invoice::getNetTotal);
+        this.quantityIndex = new SortedFieldIndex<>(store, Invoice::getQuantity);
+        if (store instanceof OffHeapInvoiceStore) {
+            this.dateIndex = null;
+            this.customerNameIndex = null;
+            this.indexes = List.of(netTotalIndex, quantityIndex);
+        } else {
+            this.dateIndex = new InvoiceDateIndex();
+            this.customerNameIndex = new TrigramIndex<>(Invoice::getId, Invoice::getCustomerName);
+            this.indexes = List.of(customerNameIndex, netTotalIndex, quantityIndex);
+        }
+    }
 
     /**
      * Thêm hóa đơn mới.
      *
      * @param invoice dữ liệu cần thêm.
+     * @return false nếu mã hóa đơn đã tồn tại (không thêm).
      */
-    public void addInvoice(Invoice invoice) {
-        invoices.appendRaw(invoice);
-        pendingPrint.enqueue(invoice);
+    public boolean addInvoice(Invoice invoice) {
+        InvoiceJournal target = journal;
+        long sequence;
+        keyLocks.lock(invoice.getId());
+        try {
+            if (!addIndexed(invoice)) {
+                return false;
+            }
+            sequence = record(target, InvoiceJournal.Op.ADD, invoice.getId(), invoice);
+        } finally {
+            keyLocks.unlock(invoice.getId());
+        }
+        sync(target, sequence);
+        synchronized (pendingPrint) {
+            pendingPrint.enqueue(invoice);
+        }
+        return true;
     }
 
     /**
@@ -33,9 +119,43 @@ public class InvoiceManager {
      * @param id      mã cần tìm.
      * @param updated dữ liệu mới.
      * @return true nếu cập nhật thành công.
+     * @throws IllegalArgumentException nếu dữ liệu mới đổi sang mã đã tồn tại.
      */
     public boolean updateInvoice(String id, Invoice updated) {
-        return invoices.replaceFirst(inv -> inv.getId().equalsIgnoreCase(id), updated);
+        InvoiceJournal target = journal;
+        long sequence;
+        keyLocks.lock(id, updated.getId());
+        try {
+            if (!updateIndexed(id, updated)) {
+                return false;
+            }
+            sequence = record(target, InvoiceJournal.Op.UPDATE, id, updated);
+        } finally {
+            keyLocks.unlock(id, updated.getId());
+        }
+        sync(target, sequence);
+        return true;
+    }
+
+    private boolean updateIndexed(String id, Invoice updated) {
+        keyLocks.lock(id, updated.getId());
+        try {
+            Optional<Invoice> old = invoices.findByKey(id);
+            if (old.isEmpty() || !invoices.replaceByKey(id, updated)) {
+                return false;
+            }
+            if (dateIndex != null) {
+                dateIndex.replace(old.get(), updated);
+            }
+            for (SecondaryIndex<Invoice> index : indexes) {
+                index.update(id, updated);
+            }
+            accumulate(old.get(), -1);
+            accumulate(updated, 1);
+            return true;
+        } finally {
+            keyLocks.unlock(id, updated.getId());
+        }
     }
 
     /**
@@ -45,12 +165,24 @@ public class InvoiceManager {
      * @return true nếu xoá thành công.
      */
     public boolean deleteInvoice(String id) {
-        Invoice removed = invoices.removeFirstAndReturn(inv -> inv.getId().equalsIgnoreCase(id));
-        if (removed != null) {
-            deletedInvoices.push(removed);
-            return true;
+        InvoiceJournal target = journal;
+        long sequence;
+        // Ngăn xếp hoàn tác khoá ngoài cùng để thứ tự trong ngăn xếp đúng thứ tự trong nhật ký
+        synchronized (deletedInvoices) {
+            keyLocks.lock(id);
+            try {
+                Invoice removed = removeIndexed(id);
+                if (removed == null) {
+                    return false;
+                }
+                deletedInvoices.push(removed);
+                sequence = record(target, InvoiceJournal.Op.DELETE, id, null);
+            } finally {
+                keyLocks.unlock(id);
+            }
         }
-        return false;
+        sync(target, sequence);
+        return true;
     }
 
     /**
@@ -60,35 +192,104 @@ public class InvoiceManager {
      * @return Optional chứa hóa đơn phù hợp.
      */
     public Optional<Invoice> findById(String id) {
-        for (Invoice invoice : invoices) {
-            if (invoice.getId().equalsIgnoreCase(id)) {
-                return Optional.of(invoice);
-            }
-        }
-        return Optional.empty();
+        return invoices.findByKey(id);
     }
 
     /**
-     * Hoàn tác lần xóa hóa đơn gần nhất.
+     * Hoàn tác lần xóa hóa đơn gần nhất. Mục trên đỉnh ngăn xếp luôn được lấy ra: nếu mã đó đã
+     * được dùng lại cho một hóa đơn mới thì hóa đơn cũ không được khôi phục, và lần hoàn tác sau
+     * sẽ tới lần xoá trước đó.
      *
-     * @return true nếu khôi phục được.
+     * @return true nếu khôi phục được, false nếu không còn lần xoá nào để hoàn tác.
+     * @throws IllegalStateException nếu mã của hóa đơn đã xoá đang được dùng lại (mục đã bị bỏ).
      */
     public boolean undoLastDelete() {
-        Invoice last = deletedInvoices.pop();
-        if (last == null) {
-            return false;
+        InvoiceJournal target = journal;
+        long sequence;
+        synchronized (deletedInvoices) {
+            Invoice last = deletedInvoices.pop();
+            if (last == null) {
+                return false;
+            }
+            keyLocks.lock(last.getId());
+            try {
+                if (!addIndexed(last)) {
+                    throw new IllegalStateException("Cannot restore invoice " + last.getId()
+                            + ": id is already in use");
+                }
+                sequence = record(target, InvoiceJournal.Op.UNDO, last.getId(), last);
+            } finally {
+                keyLocks.unlock(last.getId());
+            }
         }
-        invoices.appendRaw(last);
+        sync(target, sequence);
         return true;
     }
 
+    /**
+     * Ghi mọi thay đổi sau này (thêm, sửa, xoá, hoàn tác) vào nhật ký ngay khi thực
+     * hiện. Bản ghi được ghi nhận vào nhật ký khi vẫn giữ khoá của mã (và của ngăn xếp hoàn tác
+     * với xoá/hoàn tác), nên thứ tự trong nhật ký đúng thứ tự thay đổi của từng mã; việc ghi đĩa
+     * và fsync chạy sau khi đã nhả mọi khoá, nên các quầy không phải chờ fsync của nhau mà có thể
+     * dùng chung một lần fsync. Nếu ghi nhật ký lỗi, thay đổi vẫn có hiệu lực trong bộ nhớ và
+     * phương thức ném {@link UncheckedIOException}.
+     * <p>
+     * replaceAll, loadAll và sortBy không được ghi: đó là thao tác thay checkpoint.
+     *
+     * @param journal nhật ký đã mở, null để ngừng ghi.
+     */
+    public void attachJournal(InvoiceJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Áp dụng một thay đổi đọc lại từ nhật ký (không ghi lại vào nhật ký). Mỗi thay đổi được
+     * áp dụng như gán trạng thái cuối cho mã đó, nên phát lại lên dữ liệu đã chứa sẵn thay đổi
+     * vẫn cho cùng kết quả.
+     *
+     * @param entry thay đổi cần áp dụng.
+     */
+    public void applyJournalEntry(InvoiceJournal.Entry entry) {
+        Invoice invoice = entry.getInvoice();
+        switch (entry.getOp()) {
+            case ADD -> put(invoice);
+            case UPDATE -> {
+                if (!entry.getId().equalsIgnoreCase(invoice.getId())) {
+                    removeIndexed(entry.getId());
+                }
+                put(invoice);
+            }
+            case DELETE -> {
+                Invoice removed = removeIndexed(entry.getId());
+                if (removed != null) {
+                    synchronized (deletedInvoices) {
+                        deletedInvoices.push(removed);
+                    }
+                }
+            }
+            case UNDO -> {
+                // Các mục nằm trên mục được khôi phục đã bị lấy ra vì xung đột mã lúc chạy thật
+                synchronized (deletedInvoices) {
+                    Invoice last;
+                    do {
+                        last = deletedInvoices.pop();
+                    } while (last != null && !last.getId().equals(invoice.getId()));
+                }
+                put(invoice);
+            }
+        }
+    }
+
     /**
      * Lấy hóa đơn tiếp theo cần in/xử lý (FIFO).
      *
      * @return Optional hóa đơn.
      */
     public Optional<Invoice> pollNextForPrint() {
-        Invoice next = pendingPrint.dequeue();
+        Invoice next;
+        synchronized (pendingPrint) {
+            next = pendingPrint.dequeue();
+        }
         if (next == null) {
             return Optional.empty();
         }
@@ -96,38 +297,72 @@ public class InvoiceManager {
     }
 
     /**
-     * Tìm theo tên khách (gần đúng).
+     * Tìm theo tên khách (gần đúng) qua chỉ mục trigram, không duyệt từng hóa đơn
+     * (kho ngoài heap thì duyệt kho).
      *
      * @param customerName chuỗi cần tìm.
      * @return danh sách kết quả.
      */
     public List<Invoice> findByCustomerName(String customerName) {
-        String normalized = customerName.toLowerCase(Locale.ROOT);
-        List<Invoice> result = new ArrayList<>();
-        for (Invoice invoice : invoices) {
-            if (invoice.getCustomerName().toLowerCase(Locale.ROOT).contains(normalized)) {
-                result.add(invoice);
+        if (customerNameIndex == null) {
+            String normalized = customerName.toLowerCase(Locale.ROOT);
+            List<Invoice> result = new ArrayList<>();
+            for (Invoice invoice : invoices) {
+                if (invoice.getCustomerName().toLowerCase(Locale.ROOT).contains(normalized)) {
+                    result.add(invoice);
+                }
             }
+            return result;
         }
-        return result;
+        return resolve(customerNameIndex.search(customerName));
     }
 
     /**
-     * Tìm theo khoảng ngày mua.
+     * Đếm hóa đơn có tên khách chứa từ khóa mà không dựng lại các hóa đơn.
+     *
+     * @param keyword chuỗi cần tìm.
+     * @return số hóa đơn phù hợp.
+     */
+    public long countByCustomerName(String keyword) {
+        long count = 0;
+        if (customerNameIndex == null) {
+            String normalized = keyword.toLowerCase(Locale.ROOT);
+            for (Invoice invoice : invoices) {
+                if (invoice.getCustomerName().toLowerCase(Locale.ROOT).contains(normalized)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        for (String id : customerNameIndex.search(keyword)) {
+            if (invoices.containsKey(id)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Tìm theo khoảng ngày mua qua chỉ mục ngày, chỉ duyệt các ngày nằm trong khoảng
+     * (kho ngoài heap thì duyệt kho rồi sắp xếp phần tìm được).
      *
      * @param start ngày bắt đầu.
      * @param end   ngày kết thúc.
-     * @return danh sách kết quả.
+     * @return danh sách kết quả theo ngày tăng dần (cùng ngày thì theo thứ tự danh sách).
      */
     public List<Invoice> findByDateRange(LocalDate start, LocalDate end) {
-        List<Invoice> result = new ArrayList<>();
-        for (Invoice invoice : invoices) {
-            LocalDate saleDate = invoice.getSaleDate();
-            if (!saleDate.isBefore(start) && !saleDate.isAfter(end)) {
-                result.add(invoice);
+        if (dateIndex == null) {
+            List<Invoice> result = new ArrayList<>();
+            for (Invoice invoice : invoices) {
+                LocalDate date = invoice.getSaleDate();
+                if (!date.isBefore(start) && !date.isAfter(end)) {
+                    result.add(invoice);
+                }
             }
+            result.sort(Comparator.comparing(Invoice::getSaleDate));
+            return result;
         }
-        return result;
+        return resolve(dateIndex.range(start, end));
     }
 
     /**
@@ -147,21 +382,29 @@ public class InvoiceManager {
     }
 
     /**
-     * Sắp xếp hóa đơn theo ngày tăng dần.
+     * Sắp xếp hóa đơn theo ngày tăng dần (duyệt chỉ mục ngày, không sắp xếp lại;
+     * kho ngoài heap thì sắp xếp bản sao).
      *
      * @return danh sách mới sau sắp xếp.
      */
     public List<Invoice> sortByDateAsc() {
-        return sortCopy(Comparator.comparing(Invoice::getSaleDate));
+        if (dateIndex == null) {
+            return sortCopy(Comparator.comparing(Invoice::getSaleDate));
+        }
+        return resolve(dateIndex.ascending());
     }
 
     /**
-     * Sắp xếp hóa đơn theo ngày giảm dần.
+     * Sắp xếp hóa đơn theo ngày giảm dần (duyệt ngược chỉ mục ngày, không sắp xếp lại;
+     * kho ngoài heap thì sắp xếp bản sao).
      *
      * @return danh sách mới sau sắp xếp.
      */
     public List<Invoice> sortByDateDesc() {
-        return sortCopy(Comparator.comparing(Invoice::getSaleDate).reversed());
+        if (dateIndex == null) {
+            return sortCopy(Comparator.comparing(Invoice::getSaleDate).reversed());
+        }
+        return resolve(dateIndex.descending());
     }
 
     /**
@@ -188,13 +431,7 @@ public class InvoiceManager {
      * @return Optional chứa hóa đơn phù hợp.
      */
     public Optional<Invoice> findLargestOrder() {
-        Invoice candidate = null;
-        for (Invoice invoice : invoices) {
-            if (candidate == null || invoice.getNetTotal() > candidate.getNetTotal()) {
-                candidate = invoice;
-            }
-        }
-        return Optional.ofNullable(candidate);
+        return netTotalIndex.max();
     }
 
     /**
@@ -203,13 +440,7 @@ public class InvoiceManager {
      * @return Optional hóa đơn giá trị thấp nhất.
      */
     public Optional<Invoice> findSmallestOrder() {
-        Invoice candidate = null;
-        for (Invoice invoice : invoices) {
-            if (candidate == null || invoice.getNetTotal() < candidate.getNetTotal()) {
-                candidate = invoice;
-            }
-        }
-        return Optional.ofNullable(candidate);
+        return netTotalIndex.min();
     }
 
     /**
@@ -218,13 +449,7 @@ public class InvoiceManager {
      * @return Optional kết quả tương ứng.
      */
     public Optional<Invoice> findHighestQuantity() {
-        Invoice candidate = null;
-        for (Invoice invoice : invoices) {
-            if (candidate == null || invoice.getQuantity() > candidate.getQuantity()) {
-                candidate = invoice;
-            }
-        }
-        return Optional.ofNullable(candidate);
+        return quantityIndex.max();
     }
 
     /**
@@ -233,58 +458,40 @@ public class InvoiceManager {
      * @return Optional kết quả tương ứng.
      */
     public Optional<Invoice> findLowestQuantity() {
-        Invoice candidate = null;
-        for (Invoice invoice : invoices) {
-            if (candidate == null || invoice.getQuantity() < candidate.getQuantity()) {
-                candidate = invoice;
-            }
-        }
-        return Optional.ofNullable(candidate);
+        return quantityIndex.min();
     }
 
     /** Thống kê tổng hợp */
     /**
-     * Tổng doanh thu sau chiết khấu.
+     * Tổng doanh thu sau chiết khấu (cộng dồn, O(1)).
      *
      * @return tổng tiền thực thu.
      */
     public double totalRevenue() {
-        double total = 0;
-        for (Invoice invoice : invoices) {
-            total += invoice.getNetTotal();
+        synchronized (revenue) {
+            return revenue.value();
         }
-        return total;
     }
 
     /**
-     * Giá trị trung bình mỗi hóa đơn.
+     * Giá trị trung bình mỗi hóa đơn (cộng dồn, O(1)).
      *
      * @return doanh thu trung bình.
      */
     public double averageInvoiceValue() {
-        if (invoices.isEmpty()) {
-            return 0;
-        }
-        double sum = 0;
-        int count = 0;
-        for (Invoice invoice : invoices) {
-            sum += invoice.getNetTotal();
-            count++;
-        }
-        return sum / count;
+        int count = invoices.size();
+        return count == 0 ? 0 : totalRevenue() / count;
     }
 
     /**
-     * Tổng số lượng máy đã bán.
+     * Tổng số lượng máy đã bán (cộng dồn, O(1)).
      *
      * @return tổng quantity.
      */
     public int totalQuantitySold() {
-        int total = 0;
-        for (Invoice invoice : invoices) {
-            total += invoice.getQuantity();
+        synchronized (revenue) {
+            return (int) quantitySold;
         }
-        return total;
     }
 
     /**
@@ -297,16 +504,14 @@ public class InvoiceManager {
     }
 
     /**
-     * Tổng số tiền chiết khấu đã áp dụng.
+     * Tổng số tiền chiết khấu đã áp dụng (cộng dồn, O(1)).
      *
      * @return số tiền giảm.
      */
     public double totalDiscountAmount() {
-        double total = 0;
-        for (Invoice invoice : invoices) {
-            total += invoice.getGrossTotal() - invoice.getNetTotal();
+        synchronized (revenue) {
+            return discountAmount.value();
         }
-        return total;
     }
 
     /**
@@ -315,24 +520,16 @@ public class InvoiceManager {
      * @return Map nhân viên -> số hóa đơn.
      */
     public Map<String, Long> countBySalesperson() {
-        Map<String, Long> summary = new HashMap<>();
-        for (Invoice invoice : invoices) {
-            summary.merge(invoice.getSalesperson(), 1L, Long::sum);
-        }
-        return summary;
+        return tallyBySalesperson().counts(Invoice.SALESPEOPLE);
     }
 
     /**
-     * Doanh thu theo nhân viên.
+     * Doanh thu theo nhân viên (song song khi dữ liệu lớn, mỗi luồng gộp mảng riêng rồi trộn).
      *
      * @return Map nhân viên -> doanh thu.
      */
     public Map<String, Double> revenueBySalesperson() {
-        Map<String, Double> summary = new HashMap<>();
-        for (Invoice invoice : invoices) {
-            summary.merge(invoice.getSalesperson(), invoice.getNetTotal(), Double::sum);
-        }
-        return summary;
+        return tallyBySalesperson().sums(Invoice.SALESPEOPLE);
     }
 
     /**
@@ -341,31 +538,261 @@ public class InvoiceManager {
      * @return Map tháng -> doanh thu.
      */
     public Map<Integer, Double> revenueByMonth() {
-        Map<Integer, Double> summary = new HashMap<>();
-        for (Invoice invoice : invoices) {
-            int month = invoice.getSaleDate().getMonthValue();
-            summary.merge(month, invoice.getNetTotal(), Double::sum);
-        }
-        return summary;
+        return invoices.aggregateStream()
+                .collect(Collectors.groupingBy(invoice -> invoice.getSaleDate().getMonthValue(), HashMap::new,
+                        Collectors.summingDouble(Invoice::getNetTotal)));
     }
 
     /**
-     * Trả về danh sách hiện tại.
+     * Lấy toàn bộ danh sách hiện tại dưới dạng góc nhìn chỉ đọc (không sao chép).
+     * Cần bản sao độc lập thì dùng {@code new ArrayList<>(getAll())}.
      *
-     * @return bản sao danh sách hóa đơn.
+     * @return Collection chỉ đọc phản ánh dữ liệu hiện tại.
      */
-    public List<Invoice> getAll() {
-        return invoices.toList();
+    public Collection<Invoice> getAll() {
+        return invoices.view();
     }
 
     /**
-     * Thay thế toàn bộ dữ liệu.
+     * Thay thế toàn bộ dữ liệu, chỉ mục mã được dựng lại.
      *
      * @param newInvoices dữ liệu mới.
+     * @throws IllegalArgumentException nếu dữ liệu mới có mã trùng nhau.
      */
     public void replaceAll(List<Invoice> newInvoices) {
-        invoices.clear();
-        invoices.bulkAdd(newInvoices);
+        keyLocks.lockAll();
+        try {
+            invoices.clear();
+            invoices.appendAll(newInvoices);
+        } finally {
+            afterReplace();
+            keyLocks.unlockAll();
+        }
+    }
+
+    /**
+     * Thay toàn bộ dữ liệu bằng các hóa đơn đọc dần từ nguồn: mỗi bản ghi được đưa thẳng vào
+     * kho lưu trữ ngay khi đọc, không dựng danh sách trung gian; cấu trúc phụ được dựng lại
+     * một lần ở cuối. Nếu đọc lỗi hoặc gặp mã trùng thì danh sách được để trống.
+     *
+     * @param source nguồn dữ liệu, vd. {@code sink -> fileService.loadInvoices(path, sink)}.
+     * @throws IOException              nếu đọc nguồn thất bại.
+     * @throws IllegalArgumentException nếu nguồn có mã trùng nhau hoặc dòng sai định dạng.
+     */
+    public void loadAll(RecordSource<Invoice> source) throws IOException {
+        keyLocks.lockAll();
+        try {
+            invoices.clear();
+            source.forEachRecord(item -> {
+                if (!invoices.addIfAbsent(item)) {
+                    throw new IllegalArgumentException("Duplicate key: " + item.getId());
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            invoices.clear();
+            throw e;
+        } finally {
+            afterReplace();
+            keyLocks.unlockAll();
+        }
+    }
+
+    /**
+     * Sắp xếp theo tiêu chí tuỳ ý.
+     *
+     * @param comparator     tiêu chí sắp xếp.
+     * @param reorderPrimary true để sắp xếp lại chính danh sách lưu trữ bằng merge sort tại chỗ
+     *                       (không sao chép, thứ tự mới được giữ cho lần in/ghi sau);
+     *                       false để chỉ trả về bản sao đã sắp xếp.
+     * @return các hóa đơn theo thứ tự mới.
+     */
+    public Collection<Invoice> sortBy(Comparator<Invoice> comparator, boolean reorderPrimary) {
+        if (reorderPrimary) {
+            keyLocks.lockAll();
+            try {
+                invoices.sort(comparator);
+                rebuildIndexes();
+            } finally {
+                keyLocks.unlockAll();
+            }
+            return invoices.view();
+        }
+        return sortCopy(comparator);
+    }
+
+    /**
+     * Lấy k hóa đơn đứng đầu theo tiêu chí mà không sắp xếp toàn bộ danh sách
+     * (heap giới hạn, O(n log k) thời gian, O(k) bộ nhớ).
+     *
+     * @param comparator tiêu chí sắp xếp.
+     * @param k          số hóa đơn cần lấy.
+     * @return danh sách mới gồm tối đa k hóa đơn theo thứ tự tiêu chí.
+     * @throws IllegalArgumentException nếu k âm.
+     */
+    public List<Invoice> topK(Comparator<Invoice> comparator, int k) {
+        return page(comparator, 0, k);
+    }
+
+    /**
+     * Lấy một trang hóa đơn theo tiêu chí (thứ tự giống sortBy với reorderPrimary = false).
+     *
+     * @param comparator tiêu chí sắp xếp.
+     * @param offset     số hóa đơn bỏ qua ở đầu.
+     * @param limit      số hóa đơn tối đa của trang.
+     * @return danh sách mới chứa trang cần lấy.
+     * @throws IllegalArgumentException nếu offset hoặc limit âm.
+     */
+    public List<Invoice> page(Comparator<Invoice> comparator, int offset, int limit) {
+        return TopK.page(invoices, comparator, offset, limit);
+    }
+
+    /**
+     * Cộng (sign = 1) hoặc trừ (sign = -1) một hóa đơn vào các tổng cộng dồn.
+     */
+    private void accumulate(Invoice invoice, int sign) {
+        double net = invoice.getNetTotal();
+        synchronized (revenue) {
+            revenue.add(sign * net);
+            discountAmount.add(sign * (invoice.getGrossTotal() - net));
+            quantitySold += sign * invoice.getQuantity();
+        }
+    }
+
+    /**
+     * Đếm và cộng doanh thu theo mã nhân viên vào mảng (mỗi luồng một bộ khi chạy song song).
+     *
+     * @return bộ cộng dồn theo {@link Invoice#SALESPEOPLE}.
+     */
+    private CodeTally tallyBySalesperson() {
+        return invoices.aggregateStream().collect(
+                () -> new CodeTally(Invoice.SALESPEOPLE),
+                (tally, invoice) -> tally.add(invoice.getSalespersonCode(), invoice.getNetTotal()),
+                CodeTally::merge);
+    }
+
+    /**
+     * Dựng lại mọi cấu trúc phụ sau khi thay toàn bộ danh sách.
+     */
+    private void afterReplace() {
+        rebuildIndexes();
+        synchronized (revenue) {
+            revenue.reset();
+            discountAmount.reset();
+            quantitySold = 0;
+            for (Invoice invoice : invoices) {
+                accumulate(invoice, 1);
+            }
+        }
+    }
+
+    private void indexAdded(Invoice invoice) {
+        if (dateIndex != null) {
+            dateIndex.add(invoice);
+        }
+        for (SecondaryIndex<Invoice> index : indexes) {
+            index.add(invoice);
+        }
+    }
+
+    private void rebuildIndexes() {
+        if (dateIndex != null) {
+            dateIndex.rebuild(invoices);
+        }
+        for (SecondaryIndex<Invoice> index : indexes) {
+            index.rebuild(invoices);
+        }
+    }
+
+    /**
+     * Ghi nhận bản ghi của thay đổi vừa thực hiện vào nhật ký (không ghi đĩa); gọi khi vẫn giữ
+     * khoá của mã.
+     *
+     * @return số thứ tự bản ghi, 0 nếu không có nhật ký.
+     */
+    private static long record(InvoiceJournal target, InvoiceJournal.Op op, String id, Invoice invoice) {
+        return target == null ? 0 : target.append(op, id, invoice);
+    }
+
+    /**
+     * Ghi bản ghi đã ghi nhận xuống đĩa theo chính sách của nhật ký; gọi sau khi đã nhả mọi khoá.
+     */
+    private static void sync(InvoiceJournal target, long sequence) {
+        if (target == null) {
+            return;
+        }
+        try {
+            target.sync(sequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write invoice journal", e);
+        }
+    }
+
+    /**
+     * Ghi đè hóa đơn cùng mã nếu có, ngược lại thêm mới (dùng khi phát lại nhật ký).
+     */
+    private void put(Invoice invoice) {
+        if (!updateIndexed(invoice.getId(), invoice)) {
+            addIndexed(invoice);
+        }
+    }
+
+    /**
+     * Gỡ hóa đơn khỏi danh sách, các chỉ mục và tổng cộng dồn.
+     *
+     * @param id mã cần gỡ.
+     * @return hóa đơn đã gỡ, null nếu không có.
+     */
+    private Invoice removeIndexed(String id) {
+        keyLocks.lock(id);
+        try {
+            Invoice removed = invoices.removeByKey(id);
+            if (removed != null) {
+                if (dateIndex != null) {
+                    dateIndex.remove(removed);
+                }
+                for (SecondaryIndex<Invoice> index : indexes) {
+                    index.remove(removed.getId());
+                }
+                accumulate(removed, -1);
+            }
+            return removed;
+        } finally {
+            keyLocks.unlock(id);
+        }
+    }
+
+    /**
+     * Thêm vào chỉ mục ngày trước rồi mới thêm vào danh sách, gỡ lại nếu mã đã tồn tại.
+     *
+     * @param invoice hóa đơn cần thêm.
+     * @return false nếu mã đã tồn tại.
+     */
+    private boolean addIndexed(Invoice invoice) {
+        keyLocks.lock(invoice.getId());
+        try {
+            if (!invoices.addIfAbsent(invoice)) {
+                return false;
+            }
+            indexAdded(invoice);
+            accumulate(invoice, 1);
+            return true;
+        } finally {
+            keyLocks.unlock(invoice.getId());
+        }
+    }
+
+    /**
+     * Tra các mã lấy từ chỉ mục ra hóa đơn, bỏ qua mã vừa bị xoá đồng thời.
+     *
+     * @param ids mã hóa đơn theo thứ tự cần trả về.
+     * @return danh sách hóa đơn tương ứng.
+     */
+    private List<Invoice> resolve(List<String> ids) {
+        List<Invoice> result = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            invoices.findByKey(id).ifPresent(result::add);
+        }
+        return result;
     }
 
     /**
@@ -0,0 +1,73 @@
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Khoá phân dải theo mã: mỗi mã (không phân biệt hoa thường) luôn rơi vào cùng một khoá trong
+ * một mảng cố định. Manager giữ khoá của mã trong suốt lần đổi danh sách chính và các cấu trúc
+ * phụ, nên hai thao tác trên cùng một mã (vd. xoá rồi thêm lại) không thể đan xen mà làm lệch
+ * chỉ mục, trong khi các mã khác nhau vẫn ghi song song.
+ * <p>
+ * Khi cần nhiều khoá, chúng luôn được lấy theo thứ tự tăng dần của vị trí để không bế tắc.
+ */
+public class KeyLocks {
+    private static final int STRIPES = 64;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    public KeyLocks() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /** Khoá dải chứa mã. */
+    public void lock(String key) {
+        locks[stripe(key)].lock();
+    }
+
+    /** Mở khoá dải chứa mã. */
+    public void unlock(String key) {
+        locks[stripe(key)].unlock();
+    }
+
+    /**
+     * Khoá các dải chứa hai mã (vd. mã cũ và mã mới khi sửa đổi mã), theo thứ tự vị trí.
+     */
+    public void lock(String first, String second) {
+        int a = stripe(first);
+        int b = stripe(second);
+        locks[Math.min(a, b)].lock();
+        if (a != b) {
+            locks[Math.max(a, b)].lock();
+        }
+    }
+
+    /** Mở khoá các dải đã lấy bằng {@link #lock(String, String)}. */
+    public void unlock(String first, String second) {
+        int a = stripe(first);
+        int b = stripe(second);
+        if (a != b) {
+            locks[Math.max(a, b)].unlock();
+        }
+        locks[Math.min(a, b)].unlock();
+    }
+
+    /** Khoá mọi dải (nhập lô, nạp lại, sắp xếp lại danh sách chính). */
+    public void lockAll() {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    /** Mở khoá mọi dải. */
+    public void unlockAll() {
+        for (int i = STRIPES - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+
+    private static int stripe(String key) {
+        int h = key.toLowerCase(Locale.ROOT).hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,204 @@
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Giao diện chung cho các cấu trúc lưu trữ dạng danh sách liên kết mà các Manager sử dụng.
+ * Cho phép chọn giữa danh sách một nút/phần tử ({@link SinglyLinkedList}) và danh sách
+ * liên kết các khối mảng ({@link UnrolledLinkedList}) mà không đổi mã nghiệp vụ.
+ */
+public interface LinkedStore<T> extends Iterable<T> {
+    /** Số phần tử tối thiểu để {@link #aggregateStream()} chạy song song. */
+    int PARALLEL_THRESHOLD = 50_000;
+
+    /**
+     * Kiểu bộ máy lưu trữ.
+     */
+    enum Engine {
+        /** Mỗi phần tử một nút (mặc định). */
+        NODE,
+        /** Các nút chứa mảng phần tử cỡ cố định, duyệt nhanh hơn khi dữ liệu lớn. */
+        UNROLLED,
+        /** Danh sách không khoá cho nhiều luồng cùng ghi (nhiều quầy bán). */
+        CONCURRENT;
+
+        /** Tên thuộc tính hệ thống dùng để chọn bộ máy, vd. -Dstorage.engine=unrolled. */
+        public static final String PROPERTY = "storage.engine";
+
+        /**
+         * Đọc bộ máy được chọn qua thuộc tính hệ thống.
+         *
+         * @return bộ máy tương ứng, NODE nếu chưa cấu hình.
+         */
+        public static Engine fromSystemProperty() {
+            String value = System.getProperty(PROPERTY);
+            if (value == null || value.isBlank()) {
+                return NODE;
+            }
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Tạo kho lưu trữ theo bộ máy chỉ định.
+     *
+     * @param engine       bộ máy lưu trữ.
+     * @param keyExtractor hàm lấy khóa chính, null nếu không cần chỉ mục.
+     * @return kho lưu trữ rỗng.
+     */
+    static <T> LinkedStore<T> create(Engine engine, Function<T, String> keyExtractor) {
+        return switch (engine) {
+            case NODE -> new SinglyLinkedList<>(keyExtractor);
+            case UNROLLED -> new UnrolledLinkedList<>(keyExtractor);
+            case CONCURRENT -> new ConcurrentSinglyLinkedList<>(keyExtractor);
+        };
+    }
+
+    /** Thêm phần tử vào cuối. */
+    void addLast(T data);
+
+    /** Thêm vào cuối nếu khóa chưa tồn tại, trả về false nếu trùng (cần chỉ mục khóa). */
+    boolean addIfAbsent(T data);
+
+    /** Thêm phần tử vào cuối (giữ tương thích với mã cũ). */
+    void appendRaw(T data);
+
+    /** Thêm lần lượt một tập phần tử vào cuối. */
+    void bulkAdd(Collection<T> items);
+
+    /** Nối cả lô phần tử vào cuối trong O(k), không thêm gì nếu lô có khóa trùng. */
+    void appendAll(Collection<? extends T> items);
+
+    /** Xoá mọi phần tử thoả điều kiện. */
+    boolean removeIf(Predicate<T> predicate);
+
+    /** Tìm phần tử đầu tiên thoả điều kiện. */
+    Optional<T> findFirst(Predicate<T> predicate);
+
+    /** Cập nhật mọi phần tử thoả điều kiện. */
+    boolean update(Predicate<T> predicate, Function<T, T> updater);
+
+    /** Sắp xếp lại thứ tự lưu trữ. */
+    void sort(Comparator<T> comparator);
+
+    /** Sao chép ra ArrayList. */
+    List<T> toList();
+
+    /** Xoá toàn bộ phần tử. */
+    void clear();
+
+    /** Thay thế phần tử đầu tiên thoả điều kiện. */
+    boolean replaceFirst(Predicate<T> predicate, T newValue);
+
+    /** Xoá phần tử đầu tiên thoả điều kiện. */
+    boolean removeFirst(Predicate<T> predicate);
+
+    /** Xoá và trả về phần tử đầu tiên thoả điều kiện. */
+    T removeFirstAndReturn(Predicate<T> predicate);
+
+    /** Kiểm tra khóa đã tồn tại (cần chỉ mục khóa). */
+    boolean containsKey(String key);
+
+    /** Tra cứu theo khóa (cần chỉ mục khóa). */
+    Optional<T> findByKey(String key);
+
+    /** Thay thế theo khóa (cần chỉ mục khóa). */
+    boolean replaceByKey(String key, T newValue);
+
+    /** Xoá theo khóa (cần chỉ mục khóa). */
+    T removeByKey(String key);
+
+    /** Số phần tử hiện có. */
+    int size();
+
+    /** Kiểm tra rỗng. */
+    boolean isEmpty();
+
+    /**
+     * Spliterator có kích thước, tách được: mỗi lần tách chép một lô nút kế tiếp ra mảng
+     * (lô tăng dần) để luồng khác xử lý song song trong khi luồng hiện tại duyệt tiếp.
+     *
+     * @return spliterator ORDERED | SIZED.
+     */
+    @Override
+    default Spliterator<T> spliterator() {
+        return Spliterators.spliterator(iterator(), size(), Spliterator.ORDERED);
+    }
+
+    /**
+     * @return stream tuần tự trên kho lưu trữ.
+     */
+    default Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * @return stream song song trên kho lưu trữ.
+     */
+    default Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Stream dùng cho các phép gộp thống kê: song song khi số phần tử từ
+     * {@link #PARALLEL_THRESHOLD} trở lên, tuần tự khi nhỏ hơn để tránh chi phí chia việc.
+     *
+     * @return stream phù hợp với kích thước dữ liệu.
+     */
+    default Stream<T> aggregateStream() {
+        return size() >= PARALLEL_THRESHOLD ? parallelStream() : stream();
+    }
+
+    /**
+     * Trả về góc nhìn chỉ đọc, sống (live) trên chính kho lưu trữ: duyệt, size và stream
+     * đi thẳng vào các nút hiện có mà không sao chép. Mọi thao tác sửa đổi qua góc nhìn
+     * ném UnsupportedOperationException. Không thay đổi kho trong lúc đang duyệt góc nhìn.
+     *
+     * @return Collection chỉ đọc phản ánh dữ liệu hiện tại.
+     */
+    default Collection<T> view() {
+        LinkedStore<T> store = this;
+        return new AbstractCollection<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                Iterator<T> it = store.iterator();
+                return new Iterator<T>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public T next() {
+                        return it.next();
+                    }
+                };
+            }
+
+            @Override
+            public Spliterator<T> spliterator() {
+                return store.spliterator();
+            }
+
+            @Override
+            public int size() {
+                return store.size();
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return store.isEmpty();
+            }
+        };
+    }
+}
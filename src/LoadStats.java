@@ -0,0 +1,55 @@
+import java.util.Locale;
+
+/**
+ * Kết quả một lần nạp file: số dòng, số byte, số đoạn xử lý và thời gian, để báo tốc độ nạp.
+ */
+public class LoadStats {
+    private final long rows;
+    private final long bytes;
+    private final int chunks;
+    private final long elapsedNanos;
+
+    /**
+     * @param rows         số bản ghi đã nạp.
+     * @param bytes        kích thước file (byte).
+     * @param chunks       số đoạn file đã chia để xử lý.
+     * @param elapsedNanos thời gian nạp (nano giây).
+     */
+    public LoadStats(long rows, long bytes, int chunks, long elapsedNanos) {
+        this.rows = rows;
+        this.bytes = bytes;
+        this.chunks = chunks;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /** @return số bản ghi đã nạp. */
+    public long getRows() {
+        return rows;
+    }
+
+    /** @return kích thước file (byte). */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /** @return số đoạn file đã chia để xử lý. */
+    public int getChunks() {
+        return chunks;
+    }
+
+    /** @return thời gian nạp (nano giây). */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /** @return tốc độ nạp (dòng/giây), 0 nếu chưa đo được thời gian. */
+    public double rowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d dong, %d doan, %.3f giay, %.0f dong/giay",
+                rows, chunks, elapsedNanos / 1_000_000_000.0, rowsPerSecond());
+    }
+}
@@ -0,0 +1,629 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Kho hóa đơn nằm ngoài heap: mỗi hóa đơn là một bản ghi cố định {@value #RECORD_SIZE} byte
+ * trong các vùng nhớ trực tiếp (direct ByteBuffer). Mã điện thoại và nhân viên (ít giá trị
+ * khác nhau) lưu bằng mã của từ điển dùng chung {@link Invoice#PHONE_IDS} và
+ * {@link Invoice#SALESPEOPLE}; mã hóa đơn, tên và SĐT khách (gần như mỗi hóa đơn một giá trị)
+ * lưu dạng UTF-8 có tiền tố độ dài trong vùng chuỗi ngoài heap. Chỉ mục mã -> khe là bảng băm
+ * địa chỉ mở trên mảng int (so khớp lại với mã lưu ngoài heap), nên phần heap mỗi hóa đơn chỉ
+ * còn vài byte. Đối tượng {@link Invoice} chỉ được dựng lại khi cần (duyệt, tra cứu).
+ * <p>
+ * Bố cục bản ghi:
+ * <pre>
+ *  0 id          long (vị trí chuỗi)   36 saleDate     int (số ngày từ 1970-01-01)
+ *  8 customer    long                  40 unitPrice    double
+ * 16 custPhone   long                  48 discountRate double
+ * 24 phoneId     int (mã từ điển)      56 live         int (1 = còn, 0 = đã xoá)
+ * 28 salesperson int                   60 keyHash      int (băm của mã chữ thường)
+ * 32 quantity    int
+ * </pre>
+ * Xoá chỉ đánh dấu bản ghi; khi số bản ghi chết vượt số bản ghi sống, kho tự dồn lại. Chuỗi
+ * của bản ghi đã xoá/ghi đè cũng được thu hồi: khi phần chuỗi chết vượt phần còn dùng, vùng
+ * chuỗi được chép lại chỉ với các chuỗi còn sống.
+ * Thứ tự các khe chính là thứ tự danh sách. Không an toàn đa luồng.
+ */
+public class OffHeapInvoiceStore implements LinkedStore<Invoice> {
+    private static final int RECORD_SIZE = 64;
+    private static final int SEGMENT_SHIFT = 12;
+    private static final int SEGMENT_RECORDS = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_RECORDS - 1;
+
+    private static final int ID = 0;
+    private static final int CUSTOMER_NAME = 8;
+    private static final int CUSTOMER_PHONE = 16;
+    private static final int PHONE_ID = 24;
+    private static final int SALESPERSON = 28;
+    private static final int QUANTITY = 32;
+    private static final int SALE_DATE = 36;
+    private static final int UNIT_PRICE = 40;
+    private static final int DISCOUNT_RATE = 48;
+    private static final int LIVE = 56;
+    private static final int KEY_HASH = 60;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    // Các trường chuỗi lưu trong vùng chuỗi
+    private static final int[] ARENA_FIELDS = {ID, CUSTOMER_NAME, CUSTOMER_PHONE};
+
+    // Kích thước mỗi khối của vùng chuỗi (chuỗi dài hơn có khối riêng)
+    private static final int ARENA_CHUNK = 1 << 20;
+    // Vị trí dành cho chuỗi null
+    private static final long NULL_REF = -1;
+    private static final int EMPTY = -1;
+    private static final int MIN_TABLE = 16;
+
+    // Các vùng nhớ trực tiếp, mỗi vùng chứa SEGMENT_RECORDS bản ghi
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    // Vùng chuỗi: vị trí chuỗi = (chỉ số khối << 32) | offset trong khối
+    private List<ByteBuffer> arena = new ArrayList<>();
+    // Số byte chuỗi đã ghi và số byte thuộc bản ghi đã xoá/ghi đè
+    private long arenaUsed;
+    private long arenaGarbage;
+    // Bảng băm địa chỉ mở (dò tuyến tính): khe chứa bản ghi, EMPTY nếu trống
+    private int[] table = newTable(MIN_TABLE);
+    // Số khe đã dùng, kể cả khe đã xoá
+    private int slots;
+    private int size;
+
+    /**
+     * @param data hóa đơn cần thêm.
+     * @throws IllegalArgumentException nếu mã đã tồn tại.
+     */
+    @Override
+    public void addLast(Invoice data) {
+        if (!addIfAbsent(data)) {
+            throw new IllegalArgumentException("Duplicate key: " + data.getId());
+        }
+    }
+
+    @Override
+    public boolean addIfAbsent(Invoice data) {
+        if (find(keyOf(data)) != EMPTY) {
+            return false;
+        }
+        append(data);
+        return true;
+    }
+
+    @Override
+    public void appendRaw(Invoice data) {
+        addLast(data);
+    }
+
+    @Override
+    public void bulkAdd(Collection<Invoice> items) {
+        appendAll(items);
+    }
+
+    /**
+     * Kiểm tra mã của cả lô trước rồi mới ghi, nên lô có mã trùng không để lại bản ghi nào.
+     *
+     * @throws IllegalArgumentException nếu có mã trùng.
+     */
+    @Override
+    public void appendAll(Collection<? extends Invoice> items) {
+        Set<String> seen = new HashSet<>(items.size() * 2);
+        for (Invoice item : items) {
+            String key = keyOf(item);
+            if (find(key) != EMPTY || !seen.add(key)) {
+                throw new IllegalArgumentException("Duplicate key: " + item.getId());
+            }
+        }
+        for (Invoice item : items) {
+            append(item);
+        }
+    }
+
+    @Override
+    public boolean removeIf(Predicate<Invoice> predicate) {
+        boolean removed = false;
+        for (int slot = 0; slot < slots; slot++) {
+            if (isLive(slot)) {
+                Invoice invoice = read(slot);
+                if (predicate.test(invoice)) {
+                    kill(slot);
+                    removed = true;
+                }
+            }
+        }
+        compactIfSparse();
+        return removed;
+    }
+
+    @Override
+    public Optional<Invoice> findFirst(Predicate<Invoice> predicate) {
+        for (Invoice invoice : this) {
+            if (predicate.test(invoice)) {
+                return Optional.of(invoice);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean update(Predicate<Invoice> predicate, Function<Invoice, Invoice> updater) {
+        boolean updated = false;
+        for (int slot = 0; slot < slots; slot++) {
+            if (isLive(slot)) {
+                Invoice invoice = read(slot);
+                if (predicate.test(invoice)) {
+                    overwrite(slot, updater.apply(invoice));
+                    updated = true;
+                }
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Sắp xếp bằng cách dựng tạm các hóa đơn, sắp xếp ổn định rồi ghi lại vào các khe từ đầu
+     * (đồng thời dồn bỏ các khe đã xoá).
+     */
+    @Override
+    public void sort(Comparator<Invoice> comparator) {
+        List<Invoice> ordered = toList();
+        ordered.sort(comparator);
+        clear();
+        for (Invoice invoice : ordered) {
+            append(invoice);
+        }
+    }
+
+    @Override
+    public List<Invoice> toList() {
+        List<Invoice> list = new ArrayList<>(size);
+        for (Invoice invoice : this) {
+            list.add(invoice);
+        }
+        return list;
+    }
+
+    /**
+     * Xoá toàn bộ; các vùng nhớ trực tiếp được trả lại khi GC thu hồi ByteBuffer.
+     */
+    @Override
+    public void clear() {
+        segments.clear();
+        arena = new ArrayList<>();
+        arenaUsed = 0;
+        arenaGarbage = 0;
+        table = newTable(MIN_TABLE);
+        slots = 0;
+        size = 0;
+    }
+
+    @Override
+    public boolean replaceFirst(Predicate<Invoice> predicate, Invoice newValue) {
+        for (int slot = 0; slot < slots; slot++) {
+            if (isLive(slot)) {
+                Invoice invoice = read(slot);
+                if (predicate.test(invoice)) {
+                    overwrite(slot, newValue);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean removeFirst(Predicate<Invoice> predicate) {
+        return removeFirstAndReturn(predicate) != null;
+    }
+
+    @Override
+    public Invoice removeFirstAndReturn(Predicate<Invoice> predicate) {
+        for (int slot = 0; slot < slots; slot++) {
+            if (isLive(slot)) {
+                Invoice invoice = read(slot);
+                if (predicate.test(invoice)) {
+                    kill(slot);
+                    compactIfSparse();
+                    return invoice;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return find(normalize(key)) != EMPTY;
+    }
+
+    @Override
+    public Optional<Invoice> findByKey(String key) {
+        int slot = find(normalize(key));
+        return slot == EMPTY ? Optional.empty() : Optional.of(read(slot));
+    }
+
+    /**
+     * @throws IllegalArgumentException nếu dữ liệu mới đổi sang mã đã tồn tại.
+     */
+    @Override
+    public boolean replaceByKey(String key, Invoice newValue) {
+        int slot = find(normalize(key));
+        if (slot == EMPTY) {
+            return false;
+        }
+        overwrite(slot, newValue);
+        return true;
+    }
+
+    @Override
+    public Invoice removeByKey(String key) {
+        int slot = find(normalize(key));
+        if (slot == EMPTY) {
+            return null;
+        }
+        Invoice removed = read(slot);
+        kill(slot);
+        compactIfSparse();
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return iterator dựng từng hóa đơn khi được gọi next(), bỏ qua các khe đã xoá.
+     */
+    @Override
+    public Iterator<Invoice> iterator() {
+        return new Iterator<Invoice>() {
+            private int slot = nextLiveSlot(0);
+
+            @Override
+            public boolean hasNext() {
+                return slot < slots;
+            }
+
+            @Override
+            public Invoice next() {
+                if (slot >= slots) {
+                    throw new NoSuchElementException();
+                }
+                Invoice invoice = read(slot);
+                slot = nextLiveSlot(slot + 1);
+                return invoice;
+            }
+        };
+    }
+
+    /**
+     * @return số byte vùng chuỗi ngoài heap đang dùng, kể cả chuỗi chết chưa thu hồi.
+     */
+    public long arenaBytes() {
+        return arenaUsed;
+    }
+
+    private void append(Invoice data) {
+        if (slots == segments.size() * SEGMENT_RECORDS) {
+            segments.add(ByteBuffer.allocateDirect(SEGMENT_RECORDS * RECORD_SIZE));
+        }
+        if ((size + 1) * 2 > table.length) {
+            table = newTable(table.length * 2);
+            rebuildTable();
+        }
+        int slot = slots++;
+        write(slot, data, keyOf(data).hashCode());
+        place(slot);
+        size++;
+    }
+
+    /**
+     * Ghi đè bản ghi tại khe; nếu mã đổi thì kiểm tra trùng và cập nhật chỉ mục.
+     */
+    private void overwrite(int slot, Invoice newValue) {
+        String newKey = keyOf(newValue);
+        int newHash = newKey.hashCode();
+        boolean sameKey = newHash == keyHash(slot) && newKey.equals(normalize(readString(slot, ID)));
+        if (!sameKey) {
+            if (find(newKey) != EMPTY) {
+                throw new IllegalArgumentException("Duplicate key: " + newValue.getId());
+            }
+            unlink(slot);
+        }
+        release(slot);
+        write(slot, newValue, newHash);
+        if (!sameKey) {
+            place(slot);
+        }
+        compactArenaIfSparse();
+    }
+
+    private void kill(int slot) {
+        unlink(slot);
+        release(slot);
+        segment(slot).putInt(offset(slot) + LIVE, 0);
+        size--;
+    }
+
+    /**
+     * Dồn các bản ghi sống về đầu khi số khe chết nhiều hơn số bản ghi sống (và hơn một vùng),
+     * để chi phí dồn được chia đều cho các lần xoá. Vùng chuỗi được thu hồi cùng lúc nếu cần.
+     */
+    private void compactIfSparse() {
+        compactArenaIfSparse();
+        int dead = slots - size;
+        if (dead <= SEGMENT_RECORDS || dead <= size) {
+            return;
+        }
+        int target = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if (!isLive(slot)) {
+                continue;
+            }
+            if (slot != target) {
+                segment(target).put(offset(target), segment(slot), offset(slot), RECORD_SIZE);
+            }
+            target++;
+        }
+        slots = target;
+        releaseUnusedSegments();
+        rebuildTable();
+    }
+
+    /**
+     * Chép các chuỗi còn sống sang vùng chuỗi mới khi phần chết vượt phần còn dùng (và hơn một
+     * khối), tương tự cách dồn bản ghi.
+     */
+    private void compactArenaIfSparse() {
+        if (arenaGarbage <= ARENA_CHUNK || arenaGarbage <= arenaUsed - arenaGarbage) {
+            return;
+        }
+        List<ByteBuffer> old = arena;
+        arena = new ArrayList<>();
+        arenaUsed = 0;
+        arenaGarbage = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if (!isLive(slot)) {
+                continue;
+            }
+            ByteBuffer buffer = segment(slot);
+            int base = offset(slot);
+            for (int field : ARENA_FIELDS) {
+                long ref = buffer.getLong(base + field);
+                if (ref != NULL_REF) {
+                    ByteBuffer chunk = old.get((int) (ref >>> 32));
+                    int from = (int) ref;
+                    int bytes = Integer.BYTES + chunk.getInt(from);
+                    long moved = allocate(bytes);
+                    arena.get((int) (moved >>> 32)).put((int) moved, chunk, from, bytes);
+                    buffer.putLong(base + field, moved);
+                }
+            }
+        }
+    }
+
+    private void releaseUnusedSegments() {
+        int needed = (slots + SEGMENT_MASK) >>> SEGMENT_SHIFT;
+        while (segments.size() > needed) {
+            segments.remove(segments.size() - 1);
+        }
+    }
+
+    private int nextLiveSlot(int from) {
+        int slot = from;
+        while (slot < slots && !isLive(slot)) {
+            slot++;
+        }
+        return slot;
+    }
+
+    private boolean isLive(int slot) {
+        return segment(slot).getInt(offset(slot) + LIVE) != 0;
+    }
+
+    private int keyHash(int slot) {
+        return segment(slot).getInt(offset(slot) + KEY_HASH);
+    }
+
+    private void write(int slot, Invoice invoice, int keyHash) {
+        ByteBuffer buffer = segment(slot);
+        int base = offset(slot);
+        buffer.putLong(base + ID, writeString(invoice.getId()));
+        buffer.putLong(base + CUSTOMER_NAME, writeString(invoice.getCustomerName()));
+        buffer.putLong(base + CUSTOMER_PHONE, writeString(invoice.getCustomerPhone()));
+        buffer.putInt(base + PHONE_ID, invoice.getPhoneIdCode());
+        buffer.putInt(base + SALESPERSON, invoice.getSalespersonCode());
+        buffer.putInt(base + QUANTITY, invoice.getQuantity());
+        buffer.putDouble(base + UNIT_PRICE, invoice.getUnitPrice());
+        buffer.putDouble(base + DISCOUNT_RATE, invoice.getDiscountRate());
+        LocalDate saleDate = invoice.getSaleDate();
+        buffer.putInt(base + SALE_DATE, saleDate == null ? NO_DATE : (int) saleDate.toEpochDay());
+        buffer.putInt(base + LIVE, 1);
+        buffer.putInt(base + KEY_HASH, keyHash);
+    }
+
+    private Invoice read(int slot) {
+        ByteBuffer buffer = segment(slot);
+        int base = offset(slot);
+        int saleDay = buffer.getInt(base + SALE_DATE);
+        return new Invoice(
+                readString(slot, ID),
+                readString(slot, CUSTOMER_NAME),
+                readString(slot, CUSTOMER_PHONE),
+                Invoice.PHONE_IDS.decode(buffer.getInt(base + PHONE_ID)),
+                buffer.getInt(base + QUANTITY),
+                buffer.getDouble(base + UNIT_PRICE),
+                buffer.getDouble(base + DISCOUNT_RATE),
+                saleDay == NO_DATE ? null : LocalDate.ofEpochDay(saleDay),
+                Invoice.SALESPEOPLE.decode(buffer.getInt(base + SALESPERSON)));
+    }
+
+    /**
+     * Ghi chuỗi (độ dài + UTF-8) vào cuối vùng chuỗi.
+     *
+     * @return vị trí chuỗi, NULL_REF nếu value là null.
+     */
+    private long writeString(String value) {
+        if (value == null) {
+            return NULL_REF;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long ref = allocate(Integer.BYTES + bytes.length);
+        ByteBuffer chunk = arena.get((int) (ref >>> 32));
+        int at = (int) ref;
+        chunk.putInt(at, bytes.length);
+        chunk.put(at + Integer.BYTES, bytes);
+        return ref;
+    }
+
+    private String readString(int slot, int field) {
+        long ref = segment(slot).getLong(offset(slot) + field);
+        if (ref == NULL_REF) {
+            return null;
+        }
+        ByteBuffer chunk = arena.get((int) (ref >>> 32));
+        int at = (int) ref;
+        byte[] bytes = new byte[chunk.getInt(at)];
+        chunk.get(at + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Đánh dấu các chuỗi của bản ghi tại khe là chuỗi chết (bản ghi sắp bị xoá hoặc ghi đè).
+     */
+    private void release(int slot) {
+        ByteBuffer buffer = segment(slot);
+        int base = offset(slot);
+        for (int field : ARENA_FIELDS) {
+            long ref = buffer.getLong(base + field);
+            if (ref != NULL_REF) {
+                arenaGarbage += Integer.BYTES + arena.get((int) (ref >>> 32)).getInt((int) ref);
+            }
+        }
+    }
+
+    /**
+     * Cấp bytes byte liên tiếp trong một khối của vùng chuỗi.
+     *
+     * @return vị trí vùng được cấp.
+     */
+    private long allocate(int bytes) {
+        ByteBuffer chunk = arena.isEmpty() ? null : arena.get(arena.size() - 1);
+        if (chunk == null || chunk.capacity() - chunk.position() < bytes) {
+            chunk = ByteBuffer.allocateDirect(Math.max(ARENA_CHUNK, bytes));
+            arena.add(chunk);
+        }
+        int at = chunk.position();
+        chunk.position(at + bytes);
+        arenaUsed += bytes;
+        return ((long) (arena.size() - 1) << 32) | at;
+    }
+
+    /**
+     * Tìm khe của bản ghi có mã (đã chuẩn hoá) là key: so băm lưu trong bản ghi trước, chỉ
+     * giải mã mã ngoài heap khi băm trùng.
+     *
+     * @return khe tương ứng, EMPTY nếu không có.
+     */
+    private int find(String key) {
+        int hash = key.hashCode();
+        int mask = table.length - 1;
+        for (int i = spread(hash) & mask; table[i] != EMPTY; i = (i + 1) & mask) {
+            int slot = table[i];
+            if (keyHash(slot) == hash && key.equals(normalize(readString(slot, ID)))) {
+                return slot;
+            }
+        }
+        return EMPTY;
+    }
+
+    private void place(int slot) {
+        int mask = table.length - 1;
+        int i = spread(keyHash(slot)) & mask;
+        while (table[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        table[i] = slot;
+    }
+
+    /**
+     * Gỡ khe khỏi bảng băm và dời các mục phía sau lên (xoá kiểu backward shift, không cần
+     * đánh dấu mộ).
+     */
+    private void unlink(int slot) {
+        int mask = table.length - 1;
+        int i = spread(keyHash(slot)) & mask;
+        while (table[i] != slot) {
+            i = (i + 1) & mask;
+        }
+        int hole = i;
+        for (int j = (hole + 1) & mask; table[j] != EMPTY; j = (j + 1) & mask) {
+            int home = spread(keyHash(table[j])) & mask;
+            // Dời mục j vào lỗ nếu vị trí gốc của nó không nằm trong (hole, j]
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                table[hole] = table[j];
+                hole = j;
+            }
+        }
+        table[hole] = EMPTY;
+    }
+
+    private void rebuildTable() {
+        int capacity = MIN_TABLE;
+        while (capacity < size * 2) {
+            capacity *= 2;
+        }
+        if (table.length < capacity) {
+            table = newTable(capacity);
+        } else {
+            Arrays.fill(table, EMPTY);
+        }
+        for (int slot = 0; slot < slots; slot++) {
+            if (isLive(slot)) {
+                place(slot);
+            }
+        }
+    }
+
+    private static int[] newTable(int capacity) {
+        int[] result = new int[capacity];
+        Arrays.fill(result, EMPTY);
+        return result;
+    }
+
+    private static int spread(int hash) {
+        int mixed = hash * 0x9E3779B9;
+        return mixed ^ (mixed >>> 16);
+    }
+
+    private ByteBuffer segment(int slot) {
+        return segments.get(slot >>> SEGMENT_SHIFT);
+    }
+
+    private static int offset(int slot) {
+        return (slot & SEGMENT_MASK) * RECORD_SIZE;
+    }
+
+    private static String keyOf(Invoice invoice) {
+        return normalize(invoice.getId());
+    }
+
+    private static String normalize(String key) {
+        return key.toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,13 +1,18 @@
+import java.io.IOException;
 import java.util.Objects;
 
 /**
  * Thông tin một mẫu điện thoại trong cửa hàng.
  */
 public class Phone {
+    /** Từ điển dùng chung cho thương hiệu: mọi máy cùng hãng dùng chung một chuỗi và một mã. */
+    public static final StringDictionary BRANDS = new StringDictionary();
+
     // Sử dụng final để đảm bảo tính toàn vẹn dữ liệu sau khi khởi tạo
     private final String id;
     private final String model;
     private final String brand;
+    private final int brandCode;
     private final int storageGb;
     private final double price;
     private final int stock;
@@ -32,7 +37,8 @@ public class Phone {
             int releaseYear) {
         this.id = id;
         this.model = model;
-        this.brand = brand;
+        this.brandCode = BRANDS.encode(brand);
+        this.brand = BRANDS.decode(brandCode);
         this.storageGb = storageGb;
         this.price = price;
         this.stock = stock;
@@ -60,6 +66,13 @@ public class Phone {
         return brand;
     }
 
+    /**
+     * @return mã thương hiệu trong {@link #BRANDS}.
+     */
+    public int getBrandCode() {
+        return brandCode;
+    }
+
     /**
      * @return dung lượng bộ nhớ GB.
      */
@@ -104,9 +117,9 @@ public class Phone {
      */
     public String toCsv() {
         return String.join(",",
-                id,
-                model,
-                brand,
+                CsvCursor.quote(id),
+                CsvCursor.quote(model),
+                CsvCursor.quote(brand),
                 String.valueOf(storageGb),
                 String.valueOf(price),
                 String.valueOf(stock),
@@ -120,18 +133,61 @@ public class Phone {
      * @return đối tượng Phone tương ứng.
      */
     public static Phone fromCsv(String line) {
-        String[] parts = line.split(",");
-        if (parts.length < 7) {
-            throw new IllegalArgumentException("Invalid phone line: " + line);
+        return fromCsv(new CsvCursor().reset(line));
+    }
+
+    /**
+     * Đọc điện thoại từ dòng đang trỏ bởi con trỏ CSV (dùng lại được cho nhiều dòng khi nạp file).
+     *
+     * @param cursor con trỏ đã {@link CsvCursor#reset đặt} vào dòng cần đọc.
+     * @return điện thoại tương ứng.
+     * @throws IllegalArgumentException nếu dòng thiếu trường hoặc sai định dạng.
+     */
+    public static Phone fromCsv(CsvCursor cursor) {
+        try {
+            return new Phone(
+                    cursor.nextString(),
+                    cursor.nextString(),
+                    cursor.nextString(),
+                    cursor.nextInt(),
+                    cursor.nextDouble(),
+                    cursor.nextInt(),
+                    cursor.nextInt());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid phone line: " + cursor.line(), e);
         }
+    }
+
+    /**
+     * Ghi điện thoại vào snapshot nhị phân, cùng thứ tự trường với {@link #toCsv()}.
+     *
+     * @param out snapshot đang ghi.
+     */
+    public void writeTo(SnapshotWriter out) throws IOException {
+        out.writeString(id);
+        out.writeString(model);
+        out.writeString(brand);
+        out.writeInt(storageGb);
+        out.writeDouble(price);
+        out.writeInt(stock);
+        out.writeInt(releaseYear);
+    }
+
+    /**
+     * Đọc điện thoại do {@link #writeTo} ghi.
+     *
+     * @param in snapshot đang đọc.
+     * @return điện thoại tương ứng.
+     */
+    public static Phone readFrom(SnapshotReader in) throws IOException {
         return new Phone(
-                parts[0].trim(),
-                parts[1].trim(),
-                parts[2].trim(),
-                Integer.parseInt(parts[3].trim()),
-                Double.parseDouble(parts[4].trim()),
-                Integer.parseInt(parts[5].trim()),
-                Integer.parseInt(parts[6].trim()));
+                in.readString(),
+                in.readString(),
+                in.readString(),
+                in.readInt(),
+                in.readDouble(),
+                in.readInt(),
+                in.readInt());
     }
 
     @Override
@@ -0,0 +1,161 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Kho dạng cột chạy song song với danh sách điện thoại: giá, tồn kho và dung lượng
+ * được giữ trong các mảng nguyên thủy để phép gộp là vòng lặp chặt trên mảng,
+ * không duyệt nút và không gọi getter trên từng đối tượng.
+ * <p>
+ * Xoá bằng cách đưa hàng cuối vào chỗ trống (O(1)), nên thứ tự hàng không theo danh sách chính.
+ * <p>
+ * Tổng giá và tổng giá trị tồn kho được cộng dồn (có bù sai số) ngay khi thêm/sửa/xoá,
+ * nên đọc tổng và giá trung bình là O(1). Mọi thao tác được khoá trên chính đối tượng.
+ */
+public class PhoneColumns implements SecondaryIndex<Phone> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private double[] price = new double[INITIAL_CAPACITY];
+    private int[] stock = new int[INITIAL_CAPACITY];
+    private int[] storageGb = new int[INITIAL_CAPACITY];
+    private Phone[] rows = new Phone[INITIAL_CAPACITY];
+    private int size;
+    // Mã (chữ thường) -> số hàng trong các cột
+    private final Map<String, Integer> rowOf = new HashMap<>();
+    private final RunningSum priceSum = new RunningSum();
+    private final RunningSum inventoryValue = new RunningSum();
+
+    /**
+     * Thêm một hàng ở cuối (tương ứng phần tử được nối vào cuối danh sách).
+     *
+     * @param phone điện thoại vừa thêm.
+     */
+    @Override
+    public synchronized void add(Phone phone) {
+        if (size == rows.length) {
+            grow();
+        }
+        write(size, phone);
+        accumulate(size, 1);
+        rowOf.put(keyOf(phone.getId()), size);
+        size++;
+    }
+
+    /**
+     * Ghi đè hàng của mã cho trước, giữ nguyên vị trí thứ tự.
+     *
+     * @param id      mã cũ.
+     * @param updated dữ liệu mới (có thể đổi mã).
+     */
+    @Override
+    public synchronized void update(String id, Phone updated) {
+        Integer row = rowOf.remove(keyOf(id));
+        if (row == null) {
+            return;
+        }
+        accumulate(row, -1);
+        write(row, updated);
+        accumulate(row, 1);
+        rowOf.put(keyOf(updated.getId()), row);
+    }
+
+    /**
+     * Xoá hàng của mã cho trước bằng cách chuyển hàng cuối vào chỗ trống.
+     *
+     * @param id mã cần xoá.
+     */
+    @Override
+    public synchronized void remove(String id) {
+        Integer row = rowOf.remove(keyOf(id));
+        if (row == null) {
+            return;
+        }
+        accumulate(row, -1);
+        int last = --size;
+        if (row != last) {
+            write(row, rows[last]);
+            rowOf.put(keyOf(rows[row].getId()), row);
+        }
+        rows[last] = null;
+    }
+
+    /**
+     * Dựng lại toàn bộ cột theo đúng thứ tự danh sách chính (khi nạp file hoặc sắp xếp lại).
+     *
+     * @param phones dữ liệu theo thứ tự hiện tại.
+     */
+    @Override
+    public synchronized void rebuild(Iterable<Phone> phones) {
+        Arrays.fill(rows, 0, size, null);
+        size = 0;
+        rowOf.clear();
+        priceSum.reset();
+        inventoryValue.reset();
+        for (Phone phone : phones) {
+            add(phone);
+        }
+    }
+
+    /** @return số hàng hiện có. */
+    public synchronized int size() {
+        return size;
+    }
+
+    /** @return tổng giá * tồn kho trên mọi hàng, O(1). */
+    public synchronized double totalInventoryValue() {
+        return inventoryValue.value();
+    }
+
+    /** @return giá trung bình, 0 nếu rỗng, O(1). */
+    public synchronized double averagePrice() {
+        return size == 0 ? 0 : priceSum.value() / size;
+    }
+
+    /** @return số hàng có tồn kho > 0. */
+    public synchronized long countInStock() {
+        long count = 0;
+        for (int i = 0; i < size; i++) {
+            if (stock[i] > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /** @return Map dung lượng (GB) -> số mẫu. */
+    public synchronized Map<Integer, Long> countByStorage() {
+        Map<Integer, Long> summary = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            summary.merge(storageGb[i], 1L, Long::sum);
+        }
+        return summary;
+    }
+
+    /**
+     * Cộng (sign = 1) hoặc trừ (sign = -1) giá trị của hàng vào các tổng cộng dồn.
+     */
+    private void accumulate(int row, int sign) {
+        priceSum.add(sign * price[row]);
+        inventoryValue.add(sign * price[row] * stock[row]);
+    }
+
+    private void write(int row, Phone phone) {
+        price[row] = phone.getPrice();
+        stock[row] = phone.getStock();
+        storageGb[row] = phone.getStorageGb();
+        rows[row] = phone;
+    }
+
+    private void grow() {
+        int capacity = rows.length * 2;
+        price = Arrays.copyOf(price, capacity);
+        stock = Arrays.copyOf(stock, capacity);
+        storageGb = Arrays.copyOf(storageGb, capacity);
+        rows = Arrays.copyOf(rows, capacity);
+    }
+
+    private static String keyOf(String id) {
+        return id.toLowerCase(Locale.ROOT);
+    }
+}
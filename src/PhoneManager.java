@@ -1,24 +1,73 @@
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Lớp quản lý danh sách điện thoại: CRUD, tìm kiếm, sắp xếp và thống kê.
+ * Mỗi thao tác ghi giữ khoá theo mã ({@link KeyLocks}) từ lúc đổi danh sách chính tới khi các
+ * cấu trúc phụ đã cập nhật xong, nên với bộ máy {@link LinkedStore.Engine#CONCURRENT} các cấu
+ * trúc phụ không bị lệch khi nhiều quầy cùng sửa một mã.
  */
 public class PhoneManager {
-    private final SinglyLinkedList<Phone> phones = new SinglyLinkedList<>();
+    private final LinkedStore<Phone> phones;
+    // Bản sao dạng cột của giá/tồn kho/dung lượng, luôn đồng bộ với phones
+    private final PhoneColumns columns = new PhoneColumns();
+    // Chỉ mục phụ sắp theo giá và theo tồn kho (khoảng giá, cực trị)
+    private final SortedFieldIndex<Phone> priceIndex;
+    private final SortedFieldIndex<Phone> stockIndex;
+    // Mọi cấu trúc phụ cập nhật cùng phones
+    private final List<SecondaryIndex<Phone>> indexes;
+    // Khoá theo mã, giữ trong lúc đổi phones và các cấu trúc phụ
+    private final KeyLocks keyLocks = new KeyLocks();
+    // Tăng sau mỗi lần dữ liệu đổi; nơi khác so sánh để biết bộ nhớ đệm đã cũ
+    private final AtomicLong version = new AtomicLong();
+    // Chỉ mục nối phoneId -> Phone, dựng lại lười khi version đổi
+    private Map<String, Phone> joinIndex = Collections.emptyMap();
+    private long joinIndexVersion = -1;
+
+    /**
+     * Tạo Manager với bộ máy lưu trữ chọn qua thuộc tính hệ thống {@code storage.engine}.
+     */
+    public PhoneManager() {
+        this(LinkedStore.Engine.fromSystemProperty());
+    }
+
+    /**
+     * @param engine bộ máy lưu trữ danh sách điện thoại.
+     */
+    public PhoneManager(LinkedStore.Engine engine) {
+        this.phones = LinkedStore.create(engine, Phone::getId);
+        this.priceIndex = new SortedFieldIndex<>(phones, Phone::getPrice);
+        this.stockIndex = new SortedFieldIndex<>(phones, Phone::getStock);
+        this.indexes = List.of(columns, priceIndex, stockIndex);
+    }
 
     /**
      * Thêm điện thoại mới vào danh sách.
      *
      * @param phone đối tượng cần lưu.
+     * @return false nếu mã đã tồn tại (không thêm).
      */
-    public void addPhone(Phone phone) {
-        phones.appendRaw(phone);
+    public boolean addPhone(Phone phone) {
+        keyLocks.lock(phone.getId());
+        try {
+            if (!phones.addIfAbsent(phone)) {
+                return false;
+            }
+            indexAdded(phone);
+            version.incrementAndGet();
+            return true;
+        } finally {
+            keyLocks.unlock(phone.getId());
+        }
     }
 
     /**
@@ -27,9 +76,22 @@ public class PhoneManager {
      * @param id      mã điện thoại cần sửa.
      * @param updated dữ liệu mới.
      * @return true nếu tìm được và đã sửa.
+     * @throws IllegalArgumentException nếu dữ liệu mới đổi sang mã đã tồn tại.
      */
     public boolean updatePhone(String id, Phone updated) {
-        return phones.replaceFirst(p -> p.getId().equalsIgnoreCase(id), updated);
+        keyLocks.lock(id, updated.getId());
+        try {
+            if (!phones.replaceByKey(id, updated)) {
+                return false;
+            }
+            for (SecondaryIndex<Phone> index : indexes) {
+                index.update(id, updated);
+            }
+            version.incrementAndGet();
+            return true;
+        } finally {
+            keyLocks.unlock(id, updated.getId());
+        }
     }
 
     /**
@@ -39,7 +101,19 @@ public class PhoneManager {
      * @return true nếu xoá thành công.
      */
     public boolean deletePhone(String id) {
-        return phones.removeFirst(phone -> phone.getId().equalsIgnoreCase(id));
+        keyLocks.lock(id);
+        try {
+            if (phones.removeByKey(id) == null) {
+                return false;
+            }
+            for (SecondaryIndex<Phone> index : indexes) {
+                index.remove(id);
+            }
+            version.incrementAndGet();
+            return true;
+        } finally {
+            keyLocks.unlock(id);
+        }
     }
 
     /**
@@ -49,12 +123,7 @@ public class PhoneManager {
      * @return Optional điện thoại tương ứng.
      */
     public Optional<Phone> findById(String id) {
-        for (Phone phone : phones) {
-            if (phone.getId().equalsIgnoreCase(id)) {
-                return Optional.of(phone);
-            }
-        }
-        return Optional.empty();
+        return phones.findByKey(id);
     }
 
     /**
@@ -75,20 +144,14 @@ public class PhoneManager {
     }
 
     /**
-     * Tìm theo khoảng giá.
+     * Tìm theo khoảng giá qua chỉ mục giá, O(log n + k) khi dữ liệu chưa đổi từ lần dựng trước.
      *
      * @param min giá nhỏ nhất.
      * @param max giá lớn nhất.
-     * @return danh sách phù hợp.
+     * @return danh sách phù hợp, theo giá tăng dần (cùng giá thì theo thứ tự danh sách).
      */
     public List<Phone> findByPriceRange(double min, double max) {
-        List<Phone> result = new ArrayList<>();
-        for (Phone phone : phones) {
-            if (phone.getPrice() >= min && phone.getPrice() <= max) {
-                result.add(phone);
-            }
-        }
-        return result;
+        return priceIndex.range(min, max);
     }
 
     /**
@@ -133,83 +196,46 @@ public class PhoneManager {
      * @return điện thoại giá cao nhất (nếu có).
      */
     public Optional<Phone> findMostExpensive() {
-        Phone candidate = null;
-        for (Phone phone : phones) {
-            if (candidate == null || phone.getPrice() > candidate.getPrice()) {
-                candidate = phone;
-            }
-        }
-        return Optional.ofNullable(candidate);
+        return priceIndex.max();
     }
 
     /**
      * @return điện thoại giá thấp nhất.
      */
     public Optional<Phone> findCheapest() {
-        Phone candidate = null;
-        for (Phone phone : phones) {
-            if (candidate == null || phone.getPrice() < candidate.getPrice()) {
-                candidate = phone;
-            }
-        }
-        return Optional.ofNullable(candidate);
+        return priceIndex.min();
     }
 
     /**
      * @return điện thoại có tồn kho lớn nhất.
      */
     public Optional<Phone> findHighestStock() {
-        Phone candidate = null;
-        for (Phone phone : phones) {
-            if (candidate == null || phone.getStock() > candidate.getStock()) {
-                candidate = phone;
-            }
-        }
-        return Optional.ofNullable(candidate);
+        return stockIndex.max();
     }
 
     /**
      * @return điện thoại có tồn kho thấp nhất.
      */
     public Optional<Phone> findLowestStock() {
-        Phone candidate = null;
-        for (Phone phone : phones) {
-            if (candidate == null || phone.getStock() < candidate.getStock()) {
-                candidate = phone;
-            }
-        }
-        return Optional.ofNullable(candidate);
+        return stockIndex.min();
     }
 
     /**
-     * Tính tổng giá trị tồn kho của toàn bộ danh mục.
+     * Tính tổng giá trị tồn kho của toàn bộ danh mục (tổng cộng dồn, O(1)).
      *
      * @return tổng giá trị tồn kho (VND).
      */
     public double totalInventoryValue() {
-        double total = 0;
-        for (Phone phone : phones) {
-            total += phone.getInventoryValue();
-        }
-        return total;
+        return columns.totalInventoryValue();
     }
 
     /**
-     * Tính giá bán trung bình của các mẫu máy.
+     * Tính giá bán trung bình của các mẫu máy (tổng cộng dồn, O(1)).
      *
      * @return giá trung bình (VND).
      */
     public double averagePrice() {
-        if (phones.isEmpty()) {
-            return 0;
-        }
-        double sum = 0;
-        int count = 0;
-        for (Phone phone : phones) {
-            sum += phone.getPrice();
-            count++;
-        }
-        return sum / count;
+        return columns.averagePrice();
     }
 
     /**
@@ -235,13 +261,7 @@ public class PhoneManager {
      * @return lượng mẫu với stock > 0.
      */
     public long countPhonesInStock() {
-        long count = 0;
-        for (Phone phone : phones) {
-            if (phone.getStock() > 0) {
-                count++;
-            }
-        }
-        return count;
+        return columns.countInStock();
     }
 
     /**
@@ -250,11 +270,11 @@ public class PhoneManager {
      * @return Map thương hiệu -> số mẫu.
      */
     public Map<String, Long> countPhonesPerBrand() {
-        Map<String, Long> summary = new HashMap<>();
+        CodeTally tally = new CodeTally(Phone.BRANDS);
         for (Phone phone : phones) {
-            summary.merge(phone.getBrand(), 1L, Long::sum);
+            tally.add(phone.getBrandCode());
         }
-        return summary;
+        return tally.counts(Phone.BRANDS);
     }
 
     /**
@@ -263,30 +283,157 @@ public class PhoneManager {
      * @return Map dung lượng (GB) -> số mẫu.
      */
     public Map<Integer, Long> countByStorage() {
-        Map<Integer, Long> summary = new HashMap<>();
-        for (Phone phone : phones) {
-            summary.merge(phone.getStorageGb(), 1L, Long::sum);
-        }
-        return summary;
+        return columns.countByStorage();
     }
 
     /**
-     * Lấy toàn bộ danh sách hiện tại (bản sao).
+     * Lấy toàn bộ danh sách hiện tại dưới dạng góc nhìn chỉ đọc (không sao chép).
+     * Cần bản sao độc lập thì dùng {@code new ArrayList<>(getAll())}.
      *
-     * @return danh sách mới.
+     * @return Collection chỉ đọc phản ánh dữ liệu hiện tại.
      */
-    public List<Phone> getAll() {
-        return phones.toList();
+    public Collection<Phone> getAll() {
+        return phones.view();
     }
 
     /**
-     * Thay thế dữ liệu bằng danh sách mới (dùng khi đọc file).
+     * Thay thế dữ liệu bằng danh sách mới (dùng khi đọc file), chỉ mục mã được dựng lại.
      *
      * @param newPhones dữ liệu mới.
+     * @throws IllegalArgumentException nếu dữ liệu mới có mã trùng nhau.
      */
     public void replaceAll(List<Phone> newPhones) {
-        phones.clear();
-        phones.bulkAdd(newPhones);
+        keyLocks.lockAll();
+        try {
+            phones.clear();
+            phones.appendAll(newPhones);
+        } finally {
+            afterReplace();
+            keyLocks.unlockAll();
+        }
+    }
+
+    /**
+     * Thay toàn bộ dữ liệu bằng các điện thoại đọc dần từ nguồn: mỗi bản ghi được đưa thẳng vào
+     * kho lưu trữ ngay khi đọc, không dựng danh sách trung gian; cấu trúc phụ được dựng lại
+     * một lần ở cuối. Nếu đọc lỗi hoặc gặp mã trùng thì danh sách được để trống.
+     *
+     * @param source nguồn dữ liệu, vd. {@code sink -> fileService.loadPhones(path, sink)}.
+     * @throws IOException              nếu đọc nguồn thất bại.
+     * @throws IllegalArgumentException nếu nguồn có mã trùng nhau hoặc dòng sai định dạng.
+     */
+    public void loadAll(RecordSource<Phone> source) throws IOException {
+        keyLocks.lockAll();
+        try {
+            phones.clear();
+            source.forEachRecord(item -> {
+                if (!phones.addIfAbsent(item)) {
+                    throw new IllegalArgumentException("Duplicate key: " + item.getId());
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            phones.clear();
+            throw e;
+        } finally {
+            afterReplace();
+            keyLocks.unlockAll();
+        }
+    }
+
+    /**
+     * @return số phiên bản dữ liệu, tăng sau mỗi lần thêm/sửa/xoá/thay toàn bộ
+     *         (đổi thứ tự không làm tăng).
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Chỉ mục nối phoneId -> Phone dùng chung cho các báo cáo ghép với hóa đơn. Chỉ dựng lại
+     * khi dữ liệu đã đổi kể từ lần dựng trước; nếu không trả lại đúng Map cũ (O(1)).
+     *
+     * @return Map chỉ đọc, khóa là mã điện thoại nguyên dạng.
+     */
+    public synchronized Map<String, Phone> joinIndex() {
+        long current = version.get();
+        if (joinIndexVersion != current) {
+            Map<String, Phone> index = new HashMap<>();
+            for (Phone phone : phones) {
+                index.putIfAbsent(phone.getId(), phone);
+            }
+            joinIndex = Collections.unmodifiableMap(index);
+            joinIndexVersion = current;
+        }
+        return joinIndex;
+    }
+
+    /**
+     * Sắp xếp theo tiêu chí tuỳ ý.
+     *
+     * @param comparator     tiêu chí sắp xếp.
+     * @param reorderPrimary true để sắp xếp lại chính danh sách lưu trữ bằng merge sort tại chỗ
+     *                       (không sao chép, thứ tự mới được giữ cho lần in/ghi sau);
+     *                       false để chỉ trả về bản sao đã sắp xếp.
+     * @return các điện thoại theo thứ tự mới.
+     */
+    public Collection<Phone> sortBy(Comparator<Phone> comparator, boolean reorderPrimary) {
+        if (reorderPrimary) {
+            keyLocks.lockAll();
+            try {
+                phones.sort(comparator);
+                rebuildIndexes();
+            } finally {
+                keyLocks.unlockAll();
+            }
+            return phones.view();
+        }
+        return sortCopy(comparator);
+    }
+
+    /**
+     * Lấy k điện thoại đứng đầu theo tiêu chí mà không sắp xếp toàn bộ danh sách
+     * (heap giới hạn, O(n log k) thời gian, O(k) bộ nhớ).
+     *
+     * @param comparator tiêu chí sắp xếp.
+     * @param k          số điện thoại cần lấy.
+     * @return danh sách mới gồm tối đa k điện thoại theo thứ tự tiêu chí.
+     * @throws IllegalArgumentException nếu k âm.
+     */
+    public List<Phone> topK(Comparator<Phone> comparator, int k) {
+        return page(comparator, 0, k);
+    }
+
+    /**
+     * Lấy một trang điện thoại theo tiêu chí (thứ tự giống sortBy với reorderPrimary = false).
+     *
+     * @param comparator tiêu chí sắp xếp.
+     * @param offset     số điện thoại bỏ qua ở đầu.
+     * @param limit      số điện thoại tối đa của trang.
+     * @return danh sách mới chứa trang cần lấy.
+     * @throws IllegalArgumentException nếu offset hoặc limit âm.
+     */
+    public List<Phone> page(Comparator<Phone> comparator, int offset, int limit) {
+        return TopK.page(phones, comparator, offset, limit);
+    }
+
+    /**
+     * Dựng lại mọi cấu trúc phụ sau khi thay toàn bộ danh sách.
+     */
+    private void afterReplace() {
+        rebuildIndexes();
+        version.incrementAndGet();
+    }
+
+    private void indexAdded(Phone phone) {
+        for (SecondaryIndex<Phone> index : indexes) {
+            index.add(phone);
+        }
+    }
+
+    private void rebuildIndexes() {
+        for (SecondaryIndex<Phone> index : indexes) {
+            index.rebuild(phones);
+        }
     }
 
     /**
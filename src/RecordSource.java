@@ -0,0 +1,20 @@
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Nguồn bản ghi đọc dần (thường là một file CSV): đẩy từng phần tử vừa đọc cho nơi nhận
+ * thay vì dựng cả danh sách trong bộ nhớ.
+ *
+ * @param <T> kiểu bản ghi.
+ */
+@FunctionalInterface
+public interface RecordSource<T> {
+
+    /**
+     * Đọc toàn bộ nguồn, gọi sink cho từng bản ghi theo thứ tự.
+     *
+     * @param sink nơi nhận bản ghi; ngoại lệ ném từ sink dừng việc đọc.
+     * @throws IOException nếu đọc nguồn thất bại.
+     */
+    void forEachRecord(Consumer<? super T> sink) throws IOException;
+}
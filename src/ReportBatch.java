@@ -0,0 +1,352 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleBiFunction;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * Lô báo cáo chạy chung một lượt quét: nơi gọi đăng ký các báo cáo cần lấy, gọi {@link #run()}
+ * một lần rồi đọc kết quả qua {@link Result#get()}. Mỗi hóa đơn chỉ được duyệt và ghép với
+ * điện thoại một lần cho mọi báo cáo đã đăng ký (tương tự với danh sách điện thoại), thay cho
+ * N lượt quét khi gọi riêng từng báo cáo.
+ * <p>
+ * Mỗi báo cáo là một phép gộp theo mã số nguyên (mã từ điển hoặc tháng) vào {@link CodeTally}.
+ * Khi có ForkJoinPool và dữ liệu từ ngưỡng song song trở lên, spliterator của kho được tách
+ * thành các đoạn; mỗi tác vụ gộp vào bộ mảng riêng rồi trộn theo đúng thứ tự tách (trái rồi
+ * phải), nên kết quả tất định: tổng chỉ lệch so với chạy tuần tự ở sai số làm tròn. Map kết
+ * quả luôn duyệt theo thứ tự mã (theo tháng tăng dần với báo cáo theo tháng).
+ * <p>
+ * Mỗi lô chỉ chạy được một lần. Việc đăng ký và chạy không an toàn đa luồng.
+ */
+public class ReportBatch {
+    // Điện thoại giả dùng chung cho các hóa đơn trỏ tới mã không tồn tại
+    private static final Phone UNKNOWN_PHONE =
+            new Phone("UNKNOWN", "Unknown", "Khác", 0, 0, 0, LocalDate.now().getYear());
+    // Mã khóa trả về để bỏ qua một dòng
+    private static final int SKIP = -1;
+    // Số tháng + 1 để dùng trực tiếp tháng (1..12) làm mã
+    private static final int MONTH_CODES = 13;
+    // Số đoạn mỗi luồng xử lý, để cân tải khi các đoạn có tốc độ khác nhau
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * Kết quả của một báo cáo đã đăng ký, đọc được sau khi lô đã chạy.
+     *
+     * @param <R> kiểu kết quả.
+     */
+    public static final class Result<R> {
+        private R value;
+        private boolean ready;
+
+        private Result() {
+        }
+
+        /**
+         * @return kết quả của báo cáo.
+         * @throws IllegalStateException nếu lô chưa chạy.
+         */
+        public R get() {
+            if (!ready) {
+                throw new IllegalStateException("Report batch has not been run");
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Một báo cáo dạng gộp nhóm: mã nhóm và giá trị cộng của mỗi dòng, cùng hàm đổi bộ đếm
+     * đã gộp ra kết quả. Hóa đơn là null khi quét danh sách điện thoại.
+     */
+    private static final class Grouping<R> {
+        private final ToIntBiFunction<Invoice, Phone> key;
+        private final ToDoubleBiFunction<Invoice, Phone> value;
+        private final int capacity;
+        private final Function<CodeTally, R> finisher;
+        private final Result<R> result = new Result<>();
+
+        private Grouping(ToIntBiFunction<Invoice, Phone> key, ToDoubleBiFunction<Invoice, Phone> value,
+                         int capacity, Function<CodeTally, R> finisher) {
+            this.key = key;
+            this.value = value;
+            this.capacity = capacity;
+            this.finisher = finisher;
+        }
+
+        private void finish(CodeTally tally) {
+            result.value = finisher.apply(tally);
+            result.ready = true;
+        }
+    }
+
+    private final PhoneManager phoneManager;
+    private final InvoiceManager invoiceManager;
+    // Lấy pool khi một lượt quét đủ lớn để chạy song song; null để luôn chạy tuần tự
+    private final Supplier<ForkJoinPool> pool;
+    private final int parallelThreshold;
+    private final List<Grouping<?>> invoiceGroupings = new ArrayList<>();
+    private final List<Grouping<?>> phoneGroupings = new ArrayList<>();
+    private boolean joinPhones;
+    private boolean done;
+
+    /**
+     * Tạo lô chạy tuần tự.
+     *
+     * @param phoneManager   nguồn dữ liệu điện thoại.
+     * @param invoiceManager nguồn dữ liệu hóa đơn.
+     */
+    public ReportBatch(PhoneManager phoneManager, InvoiceManager invoiceManager) {
+        this(phoneManager, invoiceManager, (Supplier<ForkJoinPool>) null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param phoneManager      nguồn dữ liệu điện thoại.
+     * @param invoiceManager    nguồn dữ liệu hóa đơn.
+     * @param pool              pool chạy song song (null để luôn chạy tuần tự).
+     * @param parallelThreshold số dòng tối thiểu của một lượt quét để chạy song song.
+     */
+    public ReportBatch(PhoneManager phoneManager, InvoiceManager invoiceManager,
+                       ForkJoinPool pool, int parallelThreshold) {
+        this(phoneManager, invoiceManager, pool == null ? null : () -> pool, parallelThreshold);
+    }
+
+    /**
+     * @param phoneManager      nguồn dữ liệu điện thoại.
+     * @param invoiceManager    nguồn dữ liệu hóa đơn.
+     * @param pool              nơi lấy pool, chỉ gọi khi một lượt quét từ ngưỡng song song trở
+     *                          lên (null để luôn chạy tuần tự).
+     * @param parallelThreshold số dòng tối thiểu của một lượt quét để chạy song song.
+     */
+    public ReportBatch(PhoneManager phoneManager, InvoiceManager invoiceManager,
+                       Supplier<ForkJoinPool> pool, int parallelThreshold) {
+        this.phoneManager = phoneManager;
+        this.invoiceManager = invoiceManager;
+        this.pool = pool;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Đăng ký báo cáo doanh thu theo thương hiệu điện thoại.
+     *
+     * @return kết quả Map thương hiệu -> doanh thu.
+     */
+    public Result<Map<String, Double>> revenueByBrand() {
+        joinPhones = true;
+        return onInvoice((invoice, phone) -> phone.getBrandCode(), (invoice, phone) -> invoice.getNetTotal(),
+                Phone.BRANDS.size(), tally -> tally.sums(Phone.BRANDS));
+    }
+
+    /**
+     * Đăng ký báo cáo số lượng bán ra theo thương hiệu.
+     *
+     * @return kết quả Map thương hiệu -> tổng số lượng.
+     */
+    public Result<Map<String, Integer>> quantitySoldByBrand() {
+        joinPhones = true;
+        return onInvoice((invoice, phone) -> phone.getBrandCode(), (invoice, phone) -> invoice.getQuantity(),
+                Phone.BRANDS.size(), tally -> {
+                    Map<String, Integer> result = new LinkedHashMap<>();
+                    for (Map.Entry<String, Double> entry : tally.sums(Phone.BRANDS).entrySet()) {
+                        result.put(entry.getKey(), (int) Math.round(entry.getValue()));
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * Đăng ký báo cáo doanh thu từng tháng của một năm.
+     *
+     * @param year năm cần thống kê.
+     * @return kết quả Map tháng -> doanh thu trong năm đó.
+     */
+    public Result<Map<Integer, Double>> revenueByMonth(int year) {
+        return onInvoice((invoice, phone) -> invoice.getSaleDate().getYear() == year
+                        ? invoice.getSaleDate().getMonthValue() : SKIP,
+                (invoice, phone) -> invoice.getNetTotal(), MONTH_CODES, tally -> {
+                    Map<Integer, Double> result = new TreeMap<>();
+                    for (int month = 1; month < MONTH_CODES; month++) {
+                        if (tally.count(month) > 0) {
+                            result.put(month, tally.sum(month));
+                        }
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * Đăng ký báo cáo đếm hóa đơn đạt ngưỡng giá trị theo nhân viên.
+     *
+     * @param minRevenue ngưỡng doanh thu (VND).
+     * @return kết quả Map nhân viên -> số hóa đơn đạt yêu cầu.
+     */
+    public Result<Map<String, Long>> invoicesBySalespersonWithMinRevenue(double minRevenue) {
+        return onInvoice((invoice, phone) -> invoice.getNetTotal() >= minRevenue
+                        ? invoice.getSalespersonCode() : SKIP,
+                (invoice, phone) -> 0, Invoice.SALESPEOPLE.size(), tally -> tally.counts(Invoice.SALESPEOPLE));
+    }
+
+    /**
+     * Đăng ký báo cáo chiết khấu trung bình theo nhân viên.
+     *
+     * @return kết quả Map nhân viên -> tỷ lệ chiết khấu trung bình.
+     */
+    public Result<Map<String, Double>> averageDiscountBySalesperson() {
+        return onInvoice((invoice, phone) -> invoice.getSalespersonCode(), (invoice, phone) -> invoice.getDiscountRate(),
+                Invoice.SALESPEOPLE.size(), tally -> tally.averages(Invoice.SALESPEOPLE));
+    }
+
+    /**
+     * Đăng ký báo cáo đếm mẫu máy tồn kho >= minStock theo thương hiệu.
+     *
+     * @param minStock số lượng tối thiểu.
+     * @return kết quả Map thương hiệu -> số mẫu đạt điều kiện.
+     */
+    public Result<Map<String, Long>> phonesByBrandWithStockGreaterThan(int minStock) {
+        return onPhone((invoice, phone) -> phone.getStock() >= minStock ? phone.getBrandCode() : SKIP,
+                Phone.BRANDS.size(), tally -> tally.counts(Phone.BRANDS));
+    }
+
+    /**
+     * Đăng ký báo cáo đếm mẫu máy có giá >= price theo thương hiệu.
+     *
+     * @param price ngưỡng giá.
+     * @return kết quả Map thương hiệu -> số mẫu đạt điều kiện.
+     */
+    public Result<Map<String, Long>> phonesByBrandWithPriceGreaterThan(double price) {
+        return onPhone((invoice, phone) -> phone.getPrice() >= price ? phone.getBrandCode() : SKIP,
+                Phone.BRANDS.size(), tally -> tally.counts(Phone.BRANDS));
+    }
+
+    /**
+     * Chạy mọi báo cáo đã đăng ký: một lượt qua hóa đơn (ghép điện thoại qua chỉ mục nối dùng
+     * chung nếu có báo cáo cần) và một lượt qua điện thoại, bỏ qua lượt không có báo cáo nào.
+     *
+     * @throws IllegalStateException nếu lô đã chạy.
+     */
+    public void run() {
+        if (done) {
+            throw new IllegalStateException("Report batch already run");
+        }
+        done = true;
+        if (!invoiceGroupings.isEmpty()) {
+            Map<String, Phone> phoneIndex = joinPhones ? phoneManager.joinIndex() : null;
+            Scan<Invoice> scan = new Scan<>(invoiceGroupings, invoice -> invoice,
+                    invoice -> phoneIndex == null ? null : phoneIndex.getOrDefault(invoice.getPhoneId(), UNKNOWN_PHONE));
+            finish(invoiceGroupings, scan.run(invoiceManager.getAll()));
+        }
+        if (!phoneGroupings.isEmpty()) {
+            Scan<Phone> scan = new Scan<>(phoneGroupings, phone -> null, phone -> phone);
+            finish(phoneGroupings, scan.run(phoneManager.getAll()));
+        }
+    }
+
+    /**
+     * Một lượt quét gộp mọi báo cáo của một nguồn dữ liệu, tuần tự hoặc trên pool.
+     */
+    private final class Scan<E> {
+        private final List<Grouping<?>> groupings;
+        private final Function<E, Invoice> invoiceOf;
+        private final Function<E, Phone> phoneOf;
+
+        private Scan(List<Grouping<?>> groupings, Function<E, Invoice> invoiceOf, Function<E, Phone> phoneOf) {
+            this.groupings = groupings;
+            this.invoiceOf = invoiceOf;
+            this.phoneOf = phoneOf;
+        }
+
+        /**
+         * Kích thước lấy từ collection chứ không từ spliterator: kho đa luồng không báo SIZED.
+         */
+        private CodeTally[] run(Collection<E> source) {
+            Spliterator<E> rows = source.spliterator();
+            long size = source.size();
+            if (pool == null || size < parallelThreshold) {
+                return aggregate(rows);
+            }
+            ForkJoinPool forkJoinPool = pool.get();
+            long leafSize = Math.max(1, size / ((long) forkJoinPool.getParallelism() * CHUNKS_PER_THREAD));
+            return forkJoinPool.invoke(new ScanTask(rows, leafSize));
+        }
+
+        private CodeTally[] aggregate(Spliterator<E> rows) {
+            CodeTally[] tallies = new CodeTally[groupings.size()];
+            for (int i = 0; i < tallies.length; i++) {
+                tallies[i] = new CodeTally(groupings.get(i).capacity);
+            }
+            rows.forEachRemaining(row -> {
+                Invoice invoice = invoiceOf.apply(row);
+                Phone phone = phoneOf.apply(row);
+                for (int i = 0; i < tallies.length; i++) {
+                    Grouping<?> grouping = groupings.get(i);
+                    int code = grouping.key.applyAsInt(invoice, phone);
+                    if (code != SKIP) {
+                        tallies[i].add(code, grouping.value.applyAsDouble(invoice, phone));
+                    }
+                }
+            });
+            return tallies;
+        }
+
+        /**
+         * Tách đoạn đến khi đủ nhỏ; đoạn tách ra (phần đầu) chạy ở tác vụ con, phần còn lại
+         * chạy tại chỗ, rồi trộn kết quả theo thứ tự đầu -> sau.
+         */
+        @SuppressWarnings("serial")
+        private final class ScanTask extends RecursiveTask<CodeTally[]> {
+            private final Spliterator<E> rows;
+            private final long leafSize;
+
+            private ScanTask(Spliterator<E> rows, long leafSize) {
+                this.rows = rows;
+                this.leafSize = leafSize;
+            }
+
+            @Override
+            protected CodeTally[] compute() {
+                Spliterator<E> prefix = rows.estimateSize() > leafSize ? rows.trySplit() : null;
+                if (prefix == null) {
+                    return aggregate(rows);
+                }
+                ScanTask head = new ScanTask(prefix, leafSize);
+                head.fork();
+                CodeTally[] tail = new ScanTask(rows, leafSize).compute();
+                CodeTally[] merged = head.join();
+                for (int i = 0; i < merged.length; i++) {
+                    merged[i].merge(tail[i]);
+                }
+                return merged;
+            }
+        }
+    }
+
+    private static void finish(List<Grouping<?>> groupings, CodeTally[] tallies) {
+        for (int i = 0; i < tallies.length; i++) {
+            groupings.get(i).finish(tallies[i]);
+        }
+    }
+
+    private <R> Result<R> onInvoice(ToIntBiFunction<Invoice, Phone> key, ToDoubleBiFunction<Invoice, Phone> value,
+                                    int capacity, Function<CodeTally, R> finisher) {
+        return register(invoiceGroupings, new Grouping<>(key, value, capacity, finisher));
+    }
+
+    private <R> Result<R> onPhone(ToIntBiFunction<Invoice, Phone> key, int capacity, Function<CodeTally, R> finisher) {
+        return register(phoneGroupings, new Grouping<>(key, (invoice, phone) -> 0, capacity, finisher));
+    }
+
+    private <R> Result<R> register(List<Grouping<?>> groupings, Grouping<R> grouping) {
+        if (done) {
+            throw new IllegalStateException("Report batch already run");
+        }
+        groupings.add(grouping);
+        return grouping.result;
+    }
+}
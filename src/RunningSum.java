@@ -0,0 +1,41 @@
+/**
+ * Tổng cộng dồn có bù sai số (biến thể Neumaier của Kahan): giữ thêm phần sai số làm tròn
+ * của mỗi phép cộng để tổng vẫn chính xác sau hàng triệu lần cộng/trừ xen kẽ.
+ * Cộng, trừ và đọc đều O(1). Không an toàn đa luồng, nơi dùng tự khoá nếu cần.
+ */
+public class RunningSum {
+    private double sum;
+    // Phần sai số làm tròn tích luỹ, cộng vào sum khi đọc
+    private double compensation;
+
+    /**
+     * @param value giá trị cần cộng.
+     */
+    public void add(double value) {
+        double total = sum + value;
+        if (Math.abs(sum) >= Math.abs(value)) {
+            compensation += (sum - total) + value;
+        } else {
+            compensation += (value - total) + sum;
+        }
+        sum = total;
+    }
+
+    /**
+     * @param value giá trị cần trừ.
+     */
+    public void subtract(double value) {
+        add(-value);
+    }
+
+    /** @return tổng hiện tại. */
+    public double value() {
+        return sum + compensation;
+    }
+
+    /** Đưa tổng về 0. */
+    public void reset() {
+        sum = 0;
+        compensation = 0;
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * Cấu trúc phụ đi kèm danh sách chính của một Manager (chỉ mục, cột, cực trị...).
+ * Manager gọi các hàm này ngay sau khi danh sách chính thay đổi để giữ đồng bộ.
+ */
+public interface SecondaryIndex<T> {
+    /** Phần tử vừa được nối vào cuối danh sách chính. */
+    void add(T item);
+
+    /** Phần tử có mã {@code id} vừa được thay bằng {@code updated} tại chỗ. */
+    void update(String id, T updated);
+
+    /** Phần tử có mã {@code id} vừa bị xoá. */
+    void remove(String id);
+
+    /** Dựng lại toàn bộ theo thứ tự hiện tại của danh sách chính. */
+    void rebuild(Iterable<T> items);
+}
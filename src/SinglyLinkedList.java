@@ -1,17 +1,26 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
 /**
  * Danh sách liên kết đơn tổng quát dùng làm cấu trúc lưu trữ chính cho toàn bộ chương trình.
  * Chỉ cài đặt các thao tác cần thiết: thêm, xoá, cập nhật, tìm kiếm, sắp xếp và duyệt.
+ * <p>
+ * Khi khởi tạo kèm hàm lấy khóa, danh sách duy trì thêm chỉ mục băm khóa -> nút đứng trước
+ * (không phân biệt hoa thường), nhờ đó tra cứu, thay thế và xoá theo khóa đều O(1)
+ * mà vẫn giữ nguyên cấu trúc liên kết đơn.
  */
-public class SinglyLinkedList<T> implements Iterable<T> {
+public class SinglyLinkedList<T> implements LinkedStore<T> {
 
     /**
      * Nút lưu trữ dữ liệu và liên kết tới phần tử kế tiếp.
@@ -28,13 +37,37 @@ public class SinglyLinkedList<T> implements Iterable<T> {
     private Node<T> head;
     private Node<T> tail;
     private int size;
+    // Hàm lấy khóa chính của phần tử, null nếu danh sách không đánh chỉ mục
+    private final Function<T, String> keyExtractor;
+    // Khóa (chữ thường) -> nút đứng ngay trước; giá trị null nghĩa là phần tử nằm ở head
+    private final Map<String, Node<T>> predecessors;
+
+    /**
+     * Tạo danh sách không có chỉ mục khóa.
+     */
+    public SinglyLinkedList() {
+        this(null);
+    }
+
+    /**
+     * Tạo danh sách có chỉ mục khóa chính không phân biệt hoa thường.
+     *
+     * @param keyExtractor hàm lấy khóa từ phần tử (vd. Phone::getId).
+     */
+    public SinglyLinkedList(Function<T, String> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+        this.predecessors = keyExtractor == null ? null : new HashMap<>();
+    }
 
     /**
      * Thêm phần tử vào cuối danh sách để giữ nguyên thứ tự nhập.
      *
      * @param data phần tử cần thêm.
+     * @throws IllegalArgumentException nếu khóa của phần tử đã tồn tại.
      */
+    @Override
     public void addLast(T data) {
+        indexAppend(data);
         Node<T> node = new Node<>(data);
         if (head == null) {
             head = tail = node;
@@ -45,13 +78,70 @@ public class SinglyLinkedList<T> implements Iterable<T> {
         size++;
     }
 
+    /**
+     * Thêm vào cuối nếu khóa chưa tồn tại.
+     *
+     * @param data phần tử cần thêm.
+     * @return false nếu khóa đã có (không thêm).
+     */
+    @Override
+    public boolean addIfAbsent(T data) {
+        if (containsKey(extractKey(data))) {
+            return false;
+        }
+        addLast(data);
+        return true;
+    }
+
     /**
      * Thêm nhanh một tập hợp phần tử (dùng khi đọc file).
      *
      * @param items danh sách phần tử cần bổ sung.
      */
+    @Override
     public void bulkAdd(Collection<T> items) {
-        items.forEach(this::addLast);
+        appendAll(items);
+    }
+
+    /**
+     * Nối cả lô phần tử vào cuối: kiểm tra khóa trước, dựng chuỗi nút riêng rồi
+     * gắn vào tail một lần. Tổng chi phí O(k) với k phần tử, không quét lại danh sách.
+     * Nếu có khóa trùng thì không phần tử nào được thêm.
+     *
+     * @param items các phần tử cần nối, theo thứ tự duyệt của collection.
+     * @throws IllegalArgumentException nếu có khóa trùng với dữ liệu hiện có hoặc trong lô.
+     */
+    @Override
+    public void appendAll(Collection<? extends T> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        if (predecessors != null) {
+            checkBatchKeys(items);
+        }
+        Node<T> first = null;
+        Node<T> last = null;
+        Node<T> prev = tail;
+        for (T item : items) {
+            Node<T> node = new Node<>(item);
+            if (predecessors != null) {
+                predecessors.put(keyOf(item), prev);
+            }
+            if (first == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+            prev = node;
+        }
+        if (head == null) {
+            head = first;
+        } else {
+            tail.next = first;
+        }
+        tail = last;
+        size += items.size();
     }
 
     /**
@@ -60,6 +150,7 @@ public class SinglyLinkedList<T> implements Iterable<T> {
      * @param predicate điều kiện xác định phần tử cần xoá.
      * @return true nếu có ít nhất một phần tử bị xoá.
      */
+    @Override
     public boolean removeIf(Predicate<T> predicate) {
         boolean removed = false;
         Node<T> prev = null;
@@ -67,15 +158,7 @@ public class SinglyLinkedList<T> implements Iterable<T> {
         while (current != null) {
             if (predicate.test(current.data)) {
                 removed = true;
-                size--;
-                if (prev == null) {
-                    head = current.next;
-                } else {
-                    prev.next = current.next;
-                }
-                if (current == tail) {
-                    tail = prev;
-                }
+                unlink(prev, current);
             } else {
                 prev = current;
             }
@@ -90,6 +173,7 @@ public class SinglyLinkedList<T> implements Iterable<T> {
      * @param predicate điều kiện tìm kiếm.
      * @return Optional chứa phần tử phù hợp hoặc rỗng nếu không tìm thấy.
      */
+    @Override
     public Optional<T> findFirst(Predicate<T> predicate) {
         for (T item : this) {
             if (predicate.test(item)) {
@@ -106,29 +190,64 @@ public class SinglyLinkedList<T> implements Iterable<T> {
      * @param updater   hàm nhận phần tử cũ và trả về giá trị mới.
      * @return true nếu có ít nhất một phần tử được cập nhật.
      */
+    @Override
     public boolean update(Predicate<T> predicate, Function<T, T> updater) {
+        Node<T> prev = null;
         Node<T> current = head;
         boolean updated = false;
         while (current != null) {
             if (predicate.test(current.data)) {
-                current.data = updater.apply(current.data);
+                setData(prev, current, updater.apply(current.data));
                 updated = true;
             }
+            prev = current;
             current = current.next;
         }
         return updated;
     }
 
     /**
-     * Sắp xếp danh sách bằng cách chuyển tạm sang ArrayList.
+     * Sắp xếp ổn định bằng merge sort từ dưới lên (bottom-up) ngay trên các nút hiện có:
+     * mỗi lượt trộn các đoạn dài width thành đoạn dài 2*width chỉ bằng cách nối lại con trỏ.
+     * Thời gian O(n log n), bộ nhớ phụ O(1), không tạo nút mới; tail và chỉ mục khóa
+     * được cập nhật sau khi sắp xếp.
      *
      * @param comparator tiêu chí sắp xếp.
      */
+    @Override
     public void sort(Comparator<T> comparator) {
-        List<T> temp = toList();
-        temp.sort(comparator);
-        clear();
-        bulkAdd(temp);
+        if (size < 2) {
+            return;
+        }
+        for (int width = 1; width < size; width *= 2) {
+            Node<T> remaining = head;
+            Node<T> mergedTail = null;
+            while (remaining != null) {
+                Node<T> left = remaining;
+                Node<T> right = cutAfter(left, width);
+                remaining = cutAfter(right, width);
+                while (left != null || right != null) {
+                    Node<T> pick;
+                    // Lấy bên trái khi bằng nhau để giữ tính ổn định
+                    if (right == null || (left != null && comparator.compare(right.data, left.data) >= 0)) {
+                        pick = left;
+                        left = left.next;
+                    } else {
+                        pick = right;
+                        right = right.next;
+                    }
+                    if (mergedTail == null) {
+                        head = pick;
+                    } else {
+                        mergedTail.next = pick;
+                    }
+                    mergedTail = pick;
+                }
+            }
+            mergedTail.next = null;
+            tail = mergedTail;
+        }
+        rebuildIndex();
     }
 
     /**
@@ -136,6 +255,7 @@ public class SinglyLinkedList<T> implements Iterable<T> {
      *
      * @return danh sách mới chứa cùng phần tử.
      */
+    @Override
     public List<T> toList() {
         List<T> list = new ArrayList<>(size);
         for (T item : this) {
@@ -147,30 +267,24 @@ public class SinglyLinkedList<T> implements Iterable<T> {
     /**
      * Xoá toàn bộ phần tử.
      */
+    @Override
     public void clear() {
         head = tail = null;
         size = 0;
+        if (predecessors != null) {
+            predecessors.clear();
+        }
     }
 
     /**
-     * Thêm phần tử mới vào cuối danh sách.
+     * Thêm phần tử mới vào cuối danh sách trong O(1) nhờ con trỏ tail.
      *
      * @param data phần tử cần thêm.
+     * @throws IllegalArgumentException nếu khóa của phần tử đã tồn tại.
      */
+    @Override
     public void appendRaw(T data) {
-        Node<T> node = new Node<>(data);
-        if (head == null) {
-            head = node;
-            tail = node;
-        } else {
-            Node<T> cur = head;
-            while (cur.next != null) {
-                cur = cur.next;
-            }
-            cur.next = node;
-            tail = node;
-        }
-        size++;
+        addLast(data);
     }
 
     /**
@@ -180,13 +294,16 @@ public class SinglyLinkedList<T> implements Iterable<T> {
      * @param newValue  giá trị mới.
      * @return true nếu có thay thế.
      */
+    @Override
     public boolean replaceFirst(Predicate<T> predicate, T newValue) {
+        Node<T> prev = null;
         Node<T> cur = head;
         while (cur != null) {
             if (predicate.test(cur.data)) {
-                cur.data = newValue;
+                setData(prev, cur, newValue);
                 return true;
             }
+            prev = cur;
             cur = cur.next;
         }
         return false;
@@ -198,20 +315,13 @@ public class SinglyLinkedList<T> implements Iterable<T> {
      * @param predicate điều kiện xoá.
      * @return true nếu xoá thành công.
      */
+    @Override
     public boolean removeFirst(Predicate<T> predicate) {
         Node<T> prev = null;
         Node<T> cur = head;
         while (cur != null) {
             if (predicate.test(cur.data)) {
-                if (prev == null) {
-                    head = cur.next;
-                } else {
-                    prev.next = cur.next;
-                }
-                if (cur == tail) {
-                    tail = prev;
-                }
-                size--;
+                unlink(prev, cur);
                 return true;
             }
             prev = cur;
@@ -226,20 +336,13 @@ public class SinglyLinkedList<T> implements Iterable<T> {
      * @param predicate điều kiện xoá.
      * @return phần tử bị xoá hoặc null nếu không có.
      */
+    @Override
     public T removeFirstAndReturn(Predicate<T> predicate) {
         Node<T> prev = null;
         Node<T> cur = head;
         while (cur != null) {
             if (predicate.test(cur.data)) {
-                if (prev == null) {
-                    head = cur.next;
-                } else {
-                    prev.next = cur.next;
-                }
-                if (cur == tail) {
-                    tail = prev;
-                }
-                size--;
+                unlink(prev, cur);
                 return cur.data;
             }
             prev = cur;
@@ -248,11 +351,70 @@ public class SinglyLinkedList<T> implements Iterable<T> {
         return null;
     }
 
+    /**
+     * Kiểm tra khóa đã có trong danh sách hay chưa (cần chỉ mục khóa).
+     *
+     * @param key khóa cần kiểm tra, không phân biệt hoa thường.
+     * @return true nếu đã tồn tại phần tử mang khóa này.
+     */
+    @Override
+    public boolean containsKey(String key) {
+        requireIndex();
+        return predecessors.containsKey(normalize(key));
+    }
+
+    /**
+     * Tra cứu phần tử theo khóa trong O(1).
+     *
+     * @param key khóa cần tìm, không phân biệt hoa thường.
+     * @return Optional chứa phần tử hoặc rỗng nếu không có.
+     */
+    @Override
+    public Optional<T> findByKey(String key) {
+        Node<T> node = nodeOf(key);
+        return node == null ? Optional.empty() : Optional.of(node.data);
+    }
+
+    /**
+     * Thay thế phần tử mang khóa cho trước trong O(1).
+     *
+     * @param key      khóa của phần tử cần thay.
+     * @param newValue giá trị mới.
+     * @return true nếu có thay thế.
+     * @throws IllegalArgumentException nếu giá trị mới đổi sang một khóa đã tồn tại.
+     */
+    @Override
+    public boolean replaceByKey(String key, T newValue) {
+        Node<T> node = nodeOf(key);
+        if (node == null) {
+            return false;
+        }
+        setData(predecessors.get(normalize(key)), node, newValue);
+        return true;
+    }
+
+    /**
+     * Xoá và trả về phần tử mang khóa cho trước trong O(1).
+     *
+     * @param key khóa cần xoá.
+     * @return phần tử bị xoá hoặc null nếu không có.
+     */
+    @Override
+    public T removeByKey(String key) {
+        Node<T> node = nodeOf(key);
+        if (node == null) {
+            return null;
+        }
+        unlink(predecessors.get(normalize(key)), node);
+        return node.data;
+    }
+
     /**
      * Lấy số lượng phần tử hiện có.
      *
      * @return số phần tử trong danh sách.
      */
+    @Override
     public int size() {
         return size;
     }
@@ -262,6 +424,7 @@ public class SinglyLinkedList<T> implements Iterable<T> {
      *
      * @return true nếu không có phần tử nào.
      */
+    @Override
     public boolean isEmpty() {
         return size == 0;
     }
@@ -289,4 +452,150 @@ public class SinglyLinkedList<T> implements Iterable<T> {
             }
         };
     }
+
+    /**
+     * Gỡ nút khỏi chuỗi liên kết và cập nhật chỉ mục cho nút kế tiếp.
+     *
+     * @param prev nút đứng trước (null nếu cur là head).
+     * @param cur  nút cần gỡ.
+     */
+    private void unlink(Node<T> prev, Node<T> cur) {
+        Node<T> next = cur.next;
+        if (prev == null) {
+            head = next;
+        } else {
+            prev.next = next;
+        }
+        if (cur == tail) {
+            tail = prev;
+        }
+        size--;
+        if (predecessors != null) {
+            predecessors.remove(keyOf(cur.data));
+            if (next != null) {
+                predecessors.put(keyOf(next.data), prev);
+            }
+        }
+    }
+
+    /**
+     * Ghi giá trị mới vào nút, đổi khóa trong chỉ mục nếu khóa thay đổi.
+     *
+     * @param prev     nút đứng trước (null nếu node là head).
+     * @param node     nút cần ghi.
+     * @param newValue giá trị mới.
+     */
+    private void setData(Node<T> prev, Node<T> node, T newValue) {
+        if (predecessors != null) {
+            String oldKey = keyOf(node.data);
+            String newKey = keyOf(newValue);
+            if (!oldKey.equals(newKey)) {
+                if (predecessors.containsKey(newKey)) {
+                    throw new IllegalArgumentException("Duplicate key: " + extractKey(newValue));
+                }
+                predecessors.remove(oldKey);
+                predecessors.put(newKey, prev);
+            }
+        }
+        node.data = newValue;
+    }
+
+    /**
+     * Cắt chuỗi sau {@code count} nút tính từ start.
+     *
+     * @param start nút đầu đoạn (có thể null).
+     * @param count số nút giữ lại trong đoạn.
+     * @return nút đầu của phần còn lại, null nếu hết.
+     */
+    private static <T> Node<T> cutAfter(Node<T> start, int count) {
+        Node<T> cur = start;
+        for (int i = 1; cur != null && i < count; i++) {
+            cur = cur.next;
+        }
+        if (cur == null) {
+            return null;
+        }
+        Node<T> rest = cur.next;
+        cur.next = null;
+        return rest;
+    }
+
+    /**
+     * Ghi lại nút đứng trước của mọi khóa sau khi thứ tự nút thay đổi.
+     */
+    private void rebuildIndex() {
+        if (predecessors == null) {
+            return;
+        }
+        Node<T> prev = null;
+        for (Node<T> cur = head; cur != null; cur = cur.next) {
+            predecessors.put(keyOf(cur.data), prev);
+            prev = cur;
+        }
+    }
+
+    /**
+     * Ghi nhận phần tử sắp nối vào cuối trong chỉ mục (nút trước nó là tail hiện tại).
+     *
+     * @param data phần tử sắp thêm.
+     */
+    private void indexAppend(T data) {
+        if (predecessors == null) {
+            return;
+        }
+        String key = keyOf(data);
+        if (predecessors.containsKey(key)) {
+            throw new IllegalArgumentException("Duplicate key: " + extractKey(data));
+        }
+        predecessors.put(key, tail);
+    }
+
+    /**
+     * Kiểm tra một lô phần tử không trùng khóa với nhau và với dữ liệu hiện có.
+     *
+     * @param items lô cần kiểm tra.
+     */
+    private void checkBatchKeys(Collection<? extends T> items) {
+        Set<String> seen = new HashSet<>(items.size() * 2);
+        for (T item : items) {
+            String key = keyOf(item);
+            if (predecessors.containsKey(key) || !seen.add(key)) {
+                throw new IllegalArgumentException("Duplicate key: " + extractKey(item));
+            }
+        }
+    }
+
+    /**
+     * Tìm nút theo khóa thông qua nút đứng trước trong chỉ mục.
+     *
+     * @param key khóa cần tìm.
+     * @return nút tương ứng hoặc null.
+     */
+    private Node<T> nodeOf(String key) {
+        requireIndex();
+        String normalized = normalize(key);
+        if (!predecessors.containsKey(normalized)) {
+            return null;
+        }
+        Node<T> prev = predecessors.get(normalized);
+        return prev == null ? head : prev.next;
+    }
+
+    private void requireIndex() {
+        if (predecessors == null) {
+            throw new IllegalStateException("List was created without a key extractor");
+        }
+    }
+
+    private String extractKey(T data) {
+        return keyExtractor.apply(data);
+    }
+
+    private String keyOf(T data) {
+        return normalize(extractKey(data));
+    }
+
+    private static String normalize(String key) {
+        return key.toLowerCase(Locale.ROOT);
+    }
 }
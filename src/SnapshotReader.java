@@ -0,0 +1,181 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+/**
+ * Đọc file snapshot do {@link SnapshotWriter} ghi: đọc header và bảng chuỗi trước, sau đó
+ * đọc tuần tự các dòng qua {@link FileChannel} theo từng khối lớn.
+ */
+public class SnapshotReader implements Closeable {
+
+    /**
+     * Dựng một bản ghi từ các trường kế tiếp, vd. {@code Phone::readFrom}.
+     *
+     * @param <T> kiểu bản ghi.
+     */
+    @FunctionalInterface
+    public interface RowReader<T> {
+        T read(SnapshotReader in) throws IOException;
+    }
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(SnapshotWriter.BUFFER_SIZE);
+    private final int rowCount;
+    private final long tableOffset;
+    private final long size;
+    private final String[] strings;
+    // Vùng đệm dùng lại khi giải mã chuỗi trong bảng
+    private final byte[] scratch = new byte[256];
+    // Số byte đã đọc từ kênh (kể cả phần còn trong buffer)
+    private long consumed;
+
+    /**
+     * Mở file snapshot, kiểm tra header và nạp bảng chuỗi.
+     *
+     * @param path file nguồn.
+     * @param kind loại bản ghi mong đợi.
+     * @throws IllegalArgumentException nếu file không phải snapshot, khác phiên bản hoặc khác loại.
+     * @throws EOFException             nếu file bị cắt cụt.
+     */
+    public SnapshotReader(Path path, String kind) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        buffer.limit(0);
+        try {
+            size = channel.size();
+            if (readInt() != SnapshotWriter.MAGIC) {
+                throw new IllegalArgumentException("Not a snapshot file: " + path);
+            }
+            int version = readInt();
+            if (version != SnapshotWriter.VERSION) {
+                throw new IllegalArgumentException("Unsupported snapshot version: " + version);
+            }
+            String actualKind = readUtf8();
+            if (!actualKind.equals(kind)) {
+                throw new IllegalArgumentException("Expected " + kind + " snapshot but was " + actualKind);
+            }
+            rowCount = readInt();
+            int stringCount = readInt();
+            tableOffset = readLong();
+            long rowsOffset = position();
+            if (rowCount < 0 || stringCount < 0 || tableOffset < rowsOffset || tableOffset > size
+                    || stringCount > (size - tableOffset) / Integer.BYTES) {
+                throw new IllegalArgumentException("Corrupt snapshot header: " + path);
+            }
+            strings = new String[stringCount];
+            seek(tableOffset);
+            for (int i = 0; i < stringCount; i++) {
+                strings[i] = readUtf8();
+            }
+            seek(rowsOffset);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** @return số dòng ghi trong header. */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Kiểm tra đã đọc hết phần dữ liệu dòng (ngay trước bảng chuỗi).
+     *
+     * @throws IllegalArgumentException nếu các dòng không khớp với header.
+     */
+    public void expectEnd() {
+        if (position() != tableOffset) {
+            throw new IllegalArgumentException("Corrupt snapshot: rows end at " + position()
+                    + " but string table starts at " + tableOffset);
+        }
+    }
+
+    /** Đọc số nguyên 4 byte. */
+    public int readInt() throws IOException {
+        ensure(Integer.BYTES);
+        return buffer.getInt();
+    }
+
+    /** Đọc số nguyên 8 byte. */
+    public long readLong() throws IOException {
+        ensure(Long.BYTES);
+        return buffer.getLong();
+    }
+
+    /** Đọc số thực 8 byte. */
+    public double readDouble() throws IOException {
+        ensure(Double.BYTES);
+        return buffer.getDouble();
+    }
+
+    /** Đọc ngày (số ngày kể từ 1970-01-01). */
+    public LocalDate readDate() throws IOException {
+        return LocalDate.ofEpochDay(readLong());
+    }
+
+    /**
+     * Đọc chỉ số chuỗi và trả về chuỗi tương ứng trong bảng (các dòng dùng chung một đối tượng).
+     */
+    public String readString() throws IOException {
+        int id = readInt();
+        if (id == SnapshotWriter.NULL_STRING) {
+            return null;
+        }
+        if (id < 0 || id >= strings.length) {
+            throw new IllegalArgumentException("Invalid string reference: " + id);
+        }
+        return strings[id];
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private String readUtf8() throws IOException {
+        int length = readInt();
+        if (length < 0 || length > size - position()) {
+            throw new IllegalArgumentException("Invalid string length: " + length);
+        }
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        int filled = 0;
+        while (filled < length) {
+            ensure(1);
+            int n = Math.min(buffer.remaining(), length - filled);
+            buffer.get(bytes, filled, n);
+            filled += n;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            int n = channel.read(buffer);
+            if (n < 0) {
+                throw new EOFException("Truncated snapshot");
+            }
+            consumed += n;
+        }
+        buffer.flip();
+    }
+
+    private long position() {
+        return consumed - buffer.remaining();
+    }
+
+    private void seek(long position) throws IOException {
+        channel.position(position);
+        consumed = position;
+        buffer.clear().limit(0);
+    }
+}
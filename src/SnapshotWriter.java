@@ -0,0 +1,192 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ghi file snapshot nhị phân cho một loại bản ghi: số nguyên/thực ghi dạng nhị phân, ngày ghi
+ * bằng số ngày kể từ 1970-01-01, chuỗi ghi bằng chỉ số vào bảng chuỗi (mỗi chuỗi khác nhau chỉ
+ * lưu một lần, dạng UTF-8 có tiền tố độ dài) đặt cuối file.
+ * <p>
+ * Bố cục: {@code MAGIC, VERSION, kind, rowCount, stringCount, tableOffset}, các dòng, bảng chuỗi.
+ * Ba trường đếm trong header được ghi lại khi {@link #finish()}.
+ */
+public class SnapshotWriter implements Closeable {
+    static final int MAGIC = 0x50534E50; // "PSNP"
+    static final int VERSION = 1;
+    static final int BUFFER_SIZE = 1 << 20;
+    // Chỉ số dành cho chuỗi null
+    static final int NULL_STRING = -1;
+
+    /**
+     * Ghi các trường của một bản ghi, vd. {@code Phone::writeTo}.
+     *
+     * @param <T> kiểu bản ghi.
+     */
+    @FunctionalInterface
+    public interface RowWriter<T> {
+        void write(T item, SnapshotWriter out) throws IOException;
+    }
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    // Vị trí ba trường đếm trong header, ghi đè khi finish
+    private final long countsPosition;
+    // Số byte đã đẩy xuống kênh (chưa tính phần còn trong buffer)
+    private long written;
+    private int rows;
+    private boolean finished;
+
+    /**
+     * Tạo (hoặc ghi đè) file snapshot và ghi header.
+     *
+     * @param path file đích.
+     * @param kind tên loại bản ghi, được kiểm tra lại khi đọc.
+     */
+    public SnapshotWriter(Path path, String kind) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            writeInt(MAGIC);
+            writeInt(VERSION);
+            writeUtf8(kind);
+            countsPosition = position();
+            writeInt(0);
+            writeInt(0);
+            writeLong(0);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Ghi từng bản ghi của items rồi hoàn tất file.
+     *
+     * @param items  dữ liệu cần lưu.
+     * @param writer cách ghi một bản ghi.
+     */
+    public <T> void writeAll(Iterable<T> items, RowWriter<? super T> writer) throws IOException {
+        for (T item : items) {
+            writer.write(item, this);
+            rows++;
+        }
+        finish();
+    }
+
+    /** Ghi số nguyên 4 byte. */
+    public void writeInt(int value) throws IOException {
+        ensure(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    /** Ghi số nguyên 8 byte. */
+    public void writeLong(long value) throws IOException {
+        ensure(Long.BYTES);
+        buffer.putLong(value);
+    }
+
+    /** Ghi số thực 8 byte. */
+    public void writeDouble(double value) throws IOException {
+        ensure(Double.BYTES);
+        buffer.putDouble(value);
+    }
+
+    /** Ghi ngày dưới dạng số ngày kể từ 1970-01-01. */
+    public void writeDate(LocalDate value) throws IOException {
+        writeLong(value.toEpochDay());
+    }
+
+    /**
+     * Ghi chỉ số của chuỗi trong bảng chuỗi (thêm vào bảng nếu chưa có).
+     */
+    public void writeString(String value) throws IOException {
+        if (value == null) {
+            writeInt(NULL_STRING);
+            return;
+        }
+        Integer id = stringIds.get(value);
+        if (id == null) {
+            id = strings.size();
+            stringIds.put(value, id);
+            strings.add(value);
+        }
+        writeInt(id);
+    }
+
+    /**
+     * Ghi bảng chuỗi, cập nhật header và đẩy dữ liệu xuống đĩa.
+     *
+     * @throws IllegalStateException nếu đã gọi trước đó.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            throw new IllegalStateException("Snapshot already finished");
+        }
+        finished = true;
+        long tableOffset = position();
+        for (String value : strings) {
+            writeUtf8(value);
+        }
+        flush();
+        ByteBuffer counts = ByteBuffer.allocate(Integer.BYTES * 2 + Long.BYTES)
+                .putInt(rows)
+                .putInt(strings.size())
+                .putLong(tableOffset)
+                .flip();
+        while (counts.hasRemaining()) {
+            channel.write(counts, countsPosition + counts.position());
+        }
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void writeUtf8(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(bytes.length);
+        if (bytes.length > buffer.capacity()) {
+            flush();
+            ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+            while (wrapped.hasRemaining()) {
+                channel.write(wrapped);
+            }
+            written += bytes.length;
+            return;
+        }
+        ensure(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private long position() {
+        return written + buffer.position();
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        written += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,171 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Chỉ mục phụ sắp theo một trường số, dựng lại lười trên chính danh sách chính: mỗi lần
+ * thêm/sửa/xoá chỉ tăng số phiên bản (O(1), không cấp phát, không giữ gì theo từng phần tử).
+ * Lần đọc đầu tiên sau khi dữ liệu đổi mới duyệt lại danh sách: cực trị cần một lượt O(n),
+ * truy vấn khoảng dựng thêm một mảng phần tử sắp xếp ổn định kèm mảng giá trị (O(n log n)),
+ * sau đó mỗi truy vấn chỉ tốn O(1) hoặc O(log n + k) cho tới lần ghi sau.
+ * Khi nhiều phần tử cùng giá trị, phần tử đứng trước trong danh sách chính được chọn/xếp trước,
+ * giống như khi duyệt danh sách.
+ * <p>
+ * Vì kết quả luôn lấy từ một lượt duyệt danh sách chính nên không thể lệch với danh sách khi
+ * nhiều luồng cùng ghi; lần ghi xảy ra trong lúc đang duyệt làm phiên bản đổi, nên bản dựng đó
+ * bị bỏ ở lần đọc sau. Các phép đọc được khoá trên chính chỉ mục.
+ */
+public class SortedFieldIndex<T> implements SecondaryIndex<T> {
+    private final Iterable<T> source;
+    private final ToDoubleFunction<T> field;
+    // Tăng sau mỗi lần danh sách chính đổi
+    private final AtomicLong version = new AtomicLong();
+    // Cực trị của lượt duyệt gần nhất
+    private long extremesVersion = -1;
+    private T min;
+    private T max;
+    // Phần tử sắp theo giá trị và giá trị tương ứng, chỉ dựng khi có truy vấn khoảng
+    private long sortedVersion = -1;
+    private List<T> sorted = Collections.emptyList();
+    private double[] sortedValues = new double[0];
+
+    /**
+     * @param source danh sách chính (duyệt lại mỗi khi cần dựng).
+     * @param field  trường số cần sắp xếp.
+     */
+    public SortedFieldIndex(Iterable<T> source, ToDoubleFunction<T> field) {
+        this.source = source;
+        this.field = field;
+    }
+
+    @Override
+    public void add(T item) {
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void update(String id, T updated) {
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void remove(String id) {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Bỏ các bản dựng cũ; items luôn là danh sách chính đã truyền lúc tạo.
+     */
+    @Override
+    public synchronized void rebuild(Iterable<T> items) {
+        version.incrementAndGet();
+        min = null;
+        max = null;
+        sorted = Collections.emptyList();
+        sortedValues = new double[0];
+    }
+
+    /**
+     * @param min giá trị nhỏ nhất (bao gồm).
+     * @param max giá trị lớn nhất (bao gồm).
+     * @return các phần tử trong khoảng, theo giá trị tăng dần.
+     */
+    public synchronized List<T> range(double min, double max) {
+        if (min > max) {
+            return new ArrayList<>();
+        }
+        refreshSorted();
+        return new ArrayList<>(sorted.subList(lowerBound(min), upperBound(max)));
+    }
+
+    /** @return phần tử có giá trị nhỏ nhất (đứng trước nếu bằng nhau). */
+    public synchronized Optional<T> min() {
+        refreshExtremes();
+        return Optional.ofNullable(min);
+    }
+
+    /** @return phần tử có giá trị lớn nhất (đứng trước nếu bằng nhau). */
+    public synchronized Optional<T> max() {
+        refreshExtremes();
+        return Optional.ofNullable(max);
+    }
+
+    private void refreshExtremes() {
+        long current = version.get();
+        if (extremesVersion == current) {
+            return;
+        }
+        T low = null;
+        T high = null;
+        double lowValue = 0;
+        double highValue = 0;
+        for (T item : source) {
+            double value = field.applyAsDouble(item);
+            if (low == null || value < lowValue) {
+                low = item;
+                lowValue = value;
+            }
+            if (high == null || value > highValue) {
+                high = item;
+                highValue = value;
+            }
+        }
+        min = low;
+        max = high;
+        extremesVersion = current;
+    }
+
+    private void refreshSorted() {
+        long current = version.get();
+        if (sortedVersion == current) {
+            return;
+        }
+        List<T> items = new ArrayList<>();
+        for (T item : source) {
+            items.add(item);
+        }
+        // List.sort ổn định nên các phần tử cùng giá trị giữ thứ tự danh sách
+        items.sort(Comparator.comparingDouble(field));
+        double[] values = new double[items.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = field.applyAsDouble(items.get(i));
+        }
+        sorted = items;
+        sortedValues = values;
+        sortedVersion = current;
+    }
+
+    /** @return vị trí đầu tiên có giá trị &gt;= value. */
+    private int lowerBound(double value) {
+        int lo = 0;
+        int hi = sortedValues.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedValues[mid] < value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** @return vị trí đầu tiên có giá trị &gt; value. */
+    private int upperBound(double value) {
+        int lo = 0;
+        int hi = sortedValues.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedValues[mid] <= value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
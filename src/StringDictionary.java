@@ -0,0 +1,79 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Từ điển mã hoá chuỗi: mỗi chuỗi khác nhau chỉ được lưu một lần và được thay bằng
+ * một mã số nguyên liên tiếp (0, 1, 2...). Giải mã là phép truy cập mảng O(1).
+ * <p>
+ * An toàn đa luồng: tra mã không khoá, chỉ việc cấp mã mới được khoá. Dùng làm từ điển chung
+ * cho các trường ít giá trị (thương hiệu, hạng, chức vụ...) để mọi dòng dùng chung một
+ * thể hiện chuỗi và có mã dày đặc cho các phép gộp bằng mảng ({@link CodeTally}).
+ */
+public class StringDictionary {
+    /** Mã dành cho giá trị null. */
+    public static final int NULL_CODE = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Chuỗi -> mã
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    // Mã -> chuỗi; được ghi trước khi mã xuất hiện trong codes
+    private volatile String[] values = new String[INITIAL_CAPACITY];
+    private volatile int size;
+
+    /**
+     * Lấy mã của chuỗi, cấp mã mới nếu chuỗi chưa có trong từ điển.
+     *
+     * @param value chuỗi cần mã hoá (có thể null).
+     * @return mã tương ứng, {@link #NULL_CODE} nếu value null.
+     */
+    public int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        synchronized (this) {
+            code = codes.get(value);
+            if (code == null) {
+                code = size;
+                if (code == values.length) {
+                    values = Arrays.copyOf(values, code * 2);
+                }
+                values[code] = value;
+                size = code + 1;
+                codes.put(value, code);
+            }
+            return code;
+        }
+    }
+
+    /**
+     * @param code mã đã cấp bởi {@link #encode(String)}.
+     * @return chuỗi tương ứng, null nếu code là {@link #NULL_CODE}.
+     */
+    public String decode(int code) {
+        return code == NULL_CODE ? null : values[code];
+    }
+
+    /**
+     * @param value chuỗi bất kỳ (có thể null).
+     * @return thể hiện chuẩn dùng chung của chuỗi đó.
+     */
+    public String canonical(String value) {
+        return decode(encode(value));
+    }
+
+    /** @return số chuỗi khác nhau đang lưu (mã lớn nhất + 1). */
+    public int size() {
+        return size;
+    }
+
+    /** Xoá toàn bộ từ điển (mọi mã đã cấp trở nên vô hiệu); không gọi đồng thời với encode. */
+    public synchronized void clear() {
+        codes.clear();
+        values = new String[INITIAL_CAPACITY];
+        size = 0;
+    }
+}
@@ -0,0 +1,107 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Chọn k phần tử đứng đầu theo một thứ tự bằng heap có giới hạn: duyệt dữ liệu một lần,
+ * heap chỉ giữ tối đa k phần tử (phần tử "kém nhất" ở đỉnh để bị thay khi gặp phần tử tốt hơn).
+ * Chi phí O(n log k) thời gian và O(k) bộ nhớ thay cho sao chép và sắp xếp toàn bộ.
+ * <p>
+ * Các phần tử bằng nhau giữ thứ tự xuất hiện, nên kết quả trùng với k phần tử đầu của
+ * một phép sắp xếp ổn định trên toàn bộ dữ liệu. Không an toàn đa luồng.
+ */
+public class TopK<T> {
+
+    /**
+     * Một phần tử kèm số thứ tự xuất hiện, dùng để phân định các phần tử bằng nhau.
+     */
+    private static final class Ranked<T> {
+        private final T item;
+        private final long seq;
+
+        private Ranked(T item, long seq) {
+            this.item = item;
+            this.seq = seq;
+        }
+    }
+
+    private final int limit;
+    private final Comparator<Ranked<T>> order;
+    // Đỉnh heap là phần tử đứng sau cùng trong số đang giữ
+    private final PriorityQueue<Ranked<T>> heap;
+    private long nextSeq;
+
+    /**
+     * @param comparator thứ tự cần lấy (phần tử nhỏ hơn đứng trước).
+     * @param limit      số phần tử tối đa cần giữ (k).
+     * @throws IllegalArgumentException nếu limit âm.
+     */
+    public TopK(Comparator<? super T> comparator, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Negative limit: " + limit);
+        }
+        this.limit = limit;
+        this.order = Comparator.<Ranked<T>, T>comparing(ranked -> ranked.item, comparator)
+                .thenComparingLong(ranked -> ranked.seq);
+        this.heap = new PriorityQueue<>(order.reversed());
+    }
+
+    /**
+     * Xét thêm một phần tử (O(log k)).
+     *
+     * @param item phần tử tiếp theo theo thứ tự duyệt.
+     */
+    public void add(T item) {
+        Ranked<T> ranked = new Ranked<>(item, nextSeq++);
+        if (heap.size() < limit) {
+            heap.offer(ranked);
+        } else if (limit > 0 && order.compare(ranked, heap.peek()) < 0) {
+            heap.poll();
+            heap.offer(ranked);
+        }
+    }
+
+    /**
+     * @return các phần tử đã giữ, theo đúng thứ tự yêu cầu.
+     */
+    public List<T> toList() {
+        List<Ranked<T>> ranked = new ArrayList<>(heap);
+        ranked.sort(order);
+        List<T> result = new ArrayList<>(ranked.size());
+        for (Ranked<T> entry : ranked) {
+            result.add(entry.item);
+        }
+        return result;
+    }
+
+    /**
+     * Lấy một trang kết quả theo thứ tự cho trước mà không sắp xếp toàn bộ dữ liệu
+     * (giữ offset + limit phần tử, O(n log(offset + limit))).
+     *
+     * @param items      dữ liệu theo thứ tự danh sách chính.
+     * @param comparator thứ tự sắp xếp.
+     * @param offset     số phần tử bỏ qua ở đầu.
+     * @param limit      số phần tử tối đa của trang.
+     * @param <T>        kiểu phần tử.
+     * @return danh sách mới chứa trang cần lấy (rỗng nếu offset vượt quá dữ liệu).
+     * @throws IllegalArgumentException nếu offset hoặc limit âm.
+     */
+    public static <T> List<T> page(Iterable<T> items, Comparator<? super T> comparator, int offset, int limit) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Negative offset: " + offset);
+        }
+        if (limit < 0) {
+            throw new IllegalArgumentException("Negative limit: " + limit);
+        }
+        TopK<T> top = new TopK<>(comparator, (int) Math.min(Integer.MAX_VALUE, (long) offset + limit));
+        for (T item : items) {
+            top.add(item);
+        }
+        List<T> kept = top.toList();
+        if (offset >= kept.size()) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(kept.subList(offset, kept.size()));
+    }
+}
@@ -0,0 +1,219 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Chỉ mục đảo theo trigram (cụm 3 ký tự) trên tên đã chuẩn hoá chữ thường, phục vụ tìm kiếm
+ * chuỗi con. Mỗi tên khác nhau chỉ được chuẩn hoá và cắt trigram một lần khi thêm; lúc tìm,
+ * giao các danh sách tên của từng trigram trong từ khóa rồi kiểm tra lại bằng {@code contains}.
+ * Từ khóa ngắn hơn 3 ký tự thì kiểm tra trên tập tên khác nhau (không duyệt từng phần tử).
+ * <p>
+ * Chỉ mục chỉ giữ mã phần tử; kết quả trả về theo thứ tự của danh sách chính.
+ * Mọi thao tác được khoá trên chính chỉ mục.
+ */
+public class TrigramIndex<T> implements SecondaryIndex<T> {
+    private static final int GRAM = 3;
+
+    /**
+     * Một tên đã chuẩn hoá cùng các phần tử mang tên đó.
+     */
+    private static final class NameGroup {
+        private final String name;
+        // Mã (chữ thường) -> mục
+        private final Map<String, Entry> members = new HashMap<>();
+
+        private NameGroup(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Một phần tử trong chỉ mục: mã gốc, thứ tự trong danh sách và nhóm tên.
+     */
+    private static final class Entry {
+        private final String id;
+        private final long seq;
+        private final NameGroup group;
+
+        private Entry(String id, long seq, NameGroup group) {
+            this.id = id;
+            this.seq = seq;
+            this.group = group;
+        }
+    }
+
+    private final Function<T, String> keyExtractor;
+    private final Function<T, String> nameExtractor;
+    // Mã (chữ thường) -> mục
+    private final Map<String, Entry> entries = new HashMap<>();
+    // Tên chuẩn hoá -> nhóm
+    private final Map<String, NameGroup> groups = new HashMap<>();
+    // Trigram -> các nhóm tên chứa trigram đó
+    private final Map<String, Set<NameGroup>> postings = new HashMap<>();
+    private long nextSeq;
+
+    /**
+     * @param keyExtractor  hàm lấy mã phần tử.
+     * @param nameExtractor hàm lấy tên cần đánh chỉ mục.
+     */
+    public TrigramIndex(Function<T, String> keyExtractor, Function<T, String> nameExtractor) {
+        this.keyExtractor = keyExtractor;
+        this.nameExtractor = nameExtractor;
+    }
+
+    /**
+     * Thêm phần tử vừa được nối vào cuối danh sách chính (thay mục cũ nếu trùng mã).
+     *
+     * @param item phần tử cần thêm.
+     */
+    @Override
+    public synchronized void add(T item) {
+        attach(item, nextSeq++);
+    }
+
+    /**
+     * Cập nhật phần tử theo mã cũ, giữ nguyên vị trí trong danh sách.
+     *
+     * @param id      mã cũ.
+     * @param updated dữ liệu mới (có thể đổi mã hoặc tên).
+     */
+    @Override
+    public synchronized void update(String id, T updated) {
+        Entry old = detach(normalize(id));
+        if (old != null) {
+            attach(updated, old.seq);
+        }
+    }
+
+    /**
+     * @param id mã cần gỡ khỏi chỉ mục.
+     */
+    @Override
+    public synchronized void remove(String id) {
+        detach(normalize(id));
+    }
+
+    /**
+     * Dựng lại chỉ mục theo thứ tự hiện tại của danh sách chính.
+     *
+     * @param items dữ liệu theo thứ tự danh sách.
+     */
+    @Override
+    public synchronized void rebuild(Iterable<T> items) {
+        entries.clear();
+        groups.clear();
+        postings.clear();
+        nextSeq = 0;
+        for (T item : items) {
+            attach(item, nextSeq++);
+        }
+    }
+
+    /**
+     * Tìm các phần tử có tên chứa từ khóa (không phân biệt hoa thường).
+     *
+     * @param keyword từ khóa.
+     * @return mã các phần tử phù hợp theo thứ tự danh sách chính.
+     */
+    public synchronized List<String> search(String keyword) {
+        String needle = normalize(keyword);
+        List<Entry> hits = new ArrayList<>();
+        for (NameGroup group : candidates(needle)) {
+            if (group.name.contains(needle)) {
+                hits.addAll(group.members.values());
+            }
+        }
+        hits.sort(Comparator.comparingLong(entry -> entry.seq));
+        List<String> ids = new ArrayList<>(hits.size());
+        for (Entry entry : hits) {
+            ids.add(entry.id);
+        }
+        return ids;
+    }
+
+    /**
+     * Giao các danh sách tên của mọi trigram trong từ khóa, bắt đầu từ danh sách ngắn nhất.
+     */
+    private Collection<NameGroup> candidates(String needle) {
+        if (needle.length() < GRAM) {
+            return groups.values();
+        }
+        List<Set<NameGroup>> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM <= needle.length(); i++) {
+            Set<NameGroup> list = postings.get(needle.substring(i, i + GRAM));
+            if (list == null) {
+                return Collections.emptyList();
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        List<NameGroup> result = new ArrayList<>();
+        for (NameGroup group : lists.get(0)) {
+            boolean inAll = true;
+            for (int i = 1; i < lists.size() && inAll; i++) {
+                inAll = lists.get(i).contains(group);
+            }
+            if (inAll) {
+                result.add(group);
+            }
+        }
+        return result;
+    }
+
+    private void attach(T item, long seq) {
+        String key = normalize(keyExtractor.apply(item));
+        detach(key);
+        String name = normalize(nameExtractor.apply(item));
+        NameGroup group = groups.get(name);
+        if (group == null) {
+            group = new NameGroup(name);
+            groups.put(name, group);
+            for (String gram : gramsOf(name)) {
+                postings.computeIfAbsent(gram, g -> new HashSet<>()).add(group);
+            }
+        }
+        Entry entry = new Entry(keyExtractor.apply(item), seq, group);
+        group.members.put(key, entry);
+        entries.put(key, entry);
+    }
+
+    private Entry detach(String key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        NameGroup group = entry.group;
+        group.members.remove(key);
+        if (group.members.isEmpty()) {
+            groups.remove(group.name);
+            for (String gram : gramsOf(group.name)) {
+                Set<NameGroup> list = postings.get(gram);
+                list.remove(group);
+                if (list.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+        return entry;
+    }
+
+    private static Set<String> gramsOf(String name) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= name.length(); i++) {
+            grams.add(name.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,670 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Danh sách liên kết "trải phẳng" (unrolled): mỗi nút chứa một mảng tối đa
+ * {@code chunkCapacity} phần tử. Giảm số đối tượng nút và tăng tính cục bộ bộ nhớ
+ * khi duyệt toàn bộ, trong khi vẫn giữ cùng API với {@link SinglyLinkedList}.
+ * <p>
+ * Khi có hàm lấy khóa, chỉ mục ánh xạ khóa (chữ thường) -> khối đang chứa phần tử;
+ * tra cứu chỉ quét trong một khối nên vẫn là O(1).
+ */
+public class UnrolledLinkedList<T> implements LinkedStore<T> {
+    /** Số phần tử tối đa mỗi khối mặc định. */
+    public static final int DEFAULT_CHUNK_CAPACITY = 64;
+
+    /**
+     * Khối lưu một đoạn phần tử liên tiếp và liên kết tới khối kế tiếp.
+     */
+    private static final class Chunk<T> {
+        private final Object[] items;
+        private int count;
+        private Chunk<T> next;
+
+        private Chunk(int capacity) {
+            this.items = new Object[capacity];
+        }
+
+        @SuppressWarnings("unchecked")
+        private T get(int index) {
+            return (T) items[index];
+        }
+    }
+
+    private final int chunkCapacity;
+    private Chunk<T> head;
+    private Chunk<T> tail;
+    private int size;
+    // Hàm lấy khóa chính của phần tử, null nếu không đánh chỉ mục
+    private final Function<T, String> keyExtractor;
+    // Khóa (chữ thường) -> khối đang chứa phần tử
+    private final Map<String, Chunk<T>> chunkIndex;
+
+    /**
+     * Tạo danh sách không có chỉ mục khóa, cỡ khối mặc định.
+     */
+    public UnrolledLinkedList() {
+        this(null);
+    }
+
+    /**
+     * Tạo danh sách có chỉ mục khóa, cỡ khối mặc định.
+     *
+     * @param keyExtractor hàm lấy khóa từ phần tử, null nếu không cần chỉ mục.
+     */
+    public UnrolledLinkedList(Function<T, String> keyExtractor) {
+        this(keyExtractor, DEFAULT_CHUNK_CAPACITY);
+    }
+
+    /**
+     * @param keyExtractor  hàm lấy khóa từ phần tử, null nếu không cần chỉ mục.
+     * @param chunkCapacity số phần tử tối đa mỗi khối (>= 2).
+     */
+    public UnrolledLinkedList(Function<T, String> keyExtractor, int chunkCapacity) {
+        if (chunkCapacity < 2) {
+            throw new IllegalArgumentException("Chunk capacity must be at least 2: " + chunkCapacity);
+        }
+        this.chunkCapacity = chunkCapacity;
+        this.keyExtractor = keyExtractor;
+        this.chunkIndex = keyExtractor == null ? null : new HashMap<>();
+    }
+
+    /**
+     * Thêm phần tử vào khối cuối, mở khối mới khi khối cuối đã đầy.
+     *
+     * @param data phần tử cần thêm.
+     * @throws IllegalArgumentException nếu khóa của phần tử đã tồn tại.
+     */
+    @Override
+    public void addLast(T data) {
+        if (chunkIndex != null && chunkIndex.containsKey(keyOf(data))) {
+            throw new IllegalArgumentException("Duplicate key: " + keyExtractor.apply(data));
+        }
+        linkLast(data);
+    }
+
+    /**
+     * Thêm vào cuối nếu khóa chưa tồn tại.
+     *
+     * @param data phần tử cần thêm.
+     * @return false nếu khóa đã có (không thêm).
+     */
+    @Override
+    public boolean addIfAbsent(T data) {
+        if (containsKey(keyExtractor.apply(data))) {
+            return false;
+        }
+        linkLast(data);
+        return true;
+    }
+
+    /**
+     * Ghi phần tử vào ô trống cuối cùng (khóa đã được kiểm tra trước).
+     *
+     * @param data phần tử cần thêm.
+     */
+    private void linkLast(T data) {
+        if (tail == null) {
+            head = tail = new Chunk<>(chunkCapacity);
+        } else if (tail.count == chunkCapacity) {
+            Chunk<T> chunk = new Chunk<>(chunkCapacity);
+            tail.next = chunk;
+            tail = chunk;
+        }
+        tail.items[tail.count++] = data;
+        size++;
+        if (chunkIndex != null) {
+            chunkIndex.put(keyOf(data), tail);
+        }
+    }
+
+    /**
+     * Thêm phần tử vào cuối danh sách.
+     *
+     * @param data phần tử cần thêm.
+     */
+    @Override
+    public void appendRaw(T data) {
+        addLast(data);
+    }
+
+    /**
+     * Thêm nhanh một tập hợp phần tử (dùng khi đọc file).
+     *
+     * @param items danh sách phần tử cần bổ sung.
+     */
+    @Override
+    public void bulkAdd(Collection<T> items) {
+        appendAll(items);
+    }
+
+    /**
+     * Nối cả lô phần tử vào cuối, kiểm tra khóa trước để lô được thêm trọn vẹn hoặc không gì cả.
+     *
+     * @param items các phần tử cần nối.
+     * @throws IllegalArgumentException nếu có khóa trùng với dữ liệu hiện có hoặc trong lô.
+     */
+    @Override
+    public void appendAll(Collection<? extends T> items) {
+        if (chunkIndex != null) {
+            Set<String> seen = new HashSet<>(items.size() * 2);
+            for (T item : items) {
+                String key = keyOf(item);
+                if (chunkIndex.containsKey(key) || !seen.add(key)) {
+                    throw new IllegalArgumentException("Duplicate key: " + keyExtractor.apply(item));
+                }
+            }
+        }
+        for (T item : items) {
+            linkLast(item);
+        }
+    }
+
+    /**
+     * Xoá mọi phần tử thoả điều kiện bằng một lượt dồn phần tử còn lại về phía đầu.
+     *
+     * @param predicate điều kiện xác định phần tử cần xoá.
+     * @return true nếu có ít nhất một phần tử bị xoá.
+     */
+    @Override
+    public boolean removeIf(Predicate<T> predicate) {
+        Chunk<T> write = head;
+        int writePos = 0;
+        int kept = 0;
+        for (Chunk<T> read = head; read != null; read = read.next) {
+            for (int i = 0; i < read.count; i++) {
+                T item = read.get(i);
+                if (predicate.test(item)) {
+                    if (chunkIndex != null) {
+                        chunkIndex.remove(keyOf(item));
+                    }
+                    continue;
+                }
+                if (writePos == chunkCapacity) {
+                    write.count = writePos;
+                    write = write.next;
+                    writePos = 0;
+                }
+                write.items[writePos++] = item;
+                if (chunkIndex != null && write != read) {
+                    chunkIndex.put(keyOf(item), write);
+                }
+                kept++;
+            }
+        }
+        if (kept == 0) {
+            boolean removed = size > 0;
+            clear();
+            return removed;
+        }
+        if (writePos < write.count) {
+            Arrays.fill(write.items, writePos, write.count, null);
+        }
+        write.count = writePos;
+        write.next = null;
+        tail = write;
+        boolean removed = kept != size;
+        size = kept;
+        return removed;
+    }
+
+    /**
+     * Tìm phần tử đầu tiên thoả mãn điều kiện.
+     *
+     * @param predicate điều kiện tìm kiếm.
+     * @return Optional chứa phần tử phù hợp hoặc rỗng.
+     */
+    @Override
+    public Optional<T> findFirst(Predicate<T> predicate) {
+        for (Chunk<T> chunk = head; chunk != null; chunk = chunk.next) {
+            for (int i = 0; i < chunk.count; i++) {
+                T item = chunk.get(i);
+                if (predicate.test(item)) {
+                    return Optional.of(item);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Cập nhật mọi phần tử thoả điều kiện.
+     *
+     * @param predicate điều kiện chọn phần tử.
+     * @param updater   hàm nhận phần tử cũ và trả về giá trị mới.
+     * @return true nếu có ít nhất một phần tử được cập nhật.
+     */
+    @Override
+    public boolean update(Predicate<T> predicate, Function<T, T> updater) {
+        boolean updated = false;
+        for (Chunk<T> chunk = head; chunk != null; chunk = chunk.next) {
+            for (int i = 0; i < chunk.count; i++) {
+                T item = chunk.get(i);
+                if (predicate.test(item)) {
+                    set(chunk, i, updater.apply(item));
+                    updated = true;
+                }
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Sắp xếp ổn định: chép ra mảng, sắp xếp rồi ghi lại vào đúng các khối cũ.
+     *
+     * @param comparator tiêu chí sắp xếp.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void sort(Comparator<T> comparator) {
+        Object[] all = new Object[size];
+        int pos = 0;
+        for (Chunk<T> chunk = head; chunk != null; chunk = chunk.next) {
+            System.arraycopy(chunk.items, 0, all, pos, chunk.count);
+            pos += chunk.count;
+        }
+        Arrays.sort(all, (a, b) -> comparator.compare((T) a, (T) b));
+        pos = 0;
+        for (Chunk<T> chunk = head; chunk != null; chunk = chunk.next) {
+            System.arraycopy(all, pos, chunk.items, 0, chunk.count);
+            if (chunkIndex != null) {
+                for (int i = 0; i < chunk.count; i++) {
+                    chunkIndex.put(keyOf(chunk.get(i)), chunk);
+                }
+            }
+            pos += chunk.count;
+        }
+    }
+
+    /**
+     * Tạo bản sao dạng ArrayList.
+     *
+     * @return danh sách mới chứa cùng phần tử.
+     */
+    @Override
+    public List<T> toList() {
+        List<T> list = new ArrayList<>(size);
+        forEach(list::add);
+        return list;
+    }
+
+    /**
+     * Xoá toàn bộ phần tử.
+     */
+    @Override
+    public void clear() {
+        head = tail = null;
+        size = 0;
+        if (chunkIndex != null) {
+            chunkIndex.clear();
+        }
+    }
+
+    /**
+     * Thay thế phần tử đầu tiên thỏa mãn điều kiện bằng giá trị mới.
+     *
+     * @param predicate điều kiện.
+     * @param newValue  giá trị mới.
+     * @return true nếu có thay thế.
+     */
+    @Override
+    public boolean replaceFirst(Predicate<T> predicate, T newValue) {
+        for (Chunk<T> chunk = head; chunk != null; chunk = chunk.next) {
+            for (int i = 0; i < chunk.count; i++) {
+                if (predicate.test(chunk.get(i))) {
+                    set(chunk, i, newValue);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Xoá phần tử đầu tiên thỏa mãn điều kiện.
+     *
+     * @param predicate điều kiện xoá.
+     * @return true nếu xoá thành công.
+     */
+    @Override
+    public boolean removeFirst(Predicate<T> predicate) {
+        for (Chunk<T> chunk = head; chunk != null; chunk = chunk.next) {
+            for (int i = 0; i < chunk.count; i++) {
+                if (predicate.test(chunk.get(i))) {
+                    removeAt(chunk, i);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Xoá và trả về phần tử đầu tiên thỏa mãn điều kiện.
+     *
+     * @param predicate điều kiện xoá.
+     * @return phần tử bị xoá hoặc null nếu không có.
+     */
+    @Override
+    public T removeFirstAndReturn(Predicate<T> predicate) {
+        for (Chunk<T> chunk = head; chunk != null; chunk = chunk.next) {
+            for (int i = 0; i < chunk.count; i++) {
+                T item = chunk.get(i);
+                if (predicate.test(item)) {
+                    removeAt(chunk, i);
+                    return item;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param key khóa cần kiểm tra, không phân biệt hoa thường.
+     * @return true nếu đã tồn tại phần tử mang khóa này.
+     */
+    @Override
+    public boolean containsKey(String key) {
+        requireIndex();
+        return chunkIndex.containsKey(normalize(key));
+    }
+
+    /**
+     * @param key khóa cần tìm, không phân biệt hoa thường.
+     * @return Optional chứa phần tử hoặc rỗng nếu không có.
+     */
+    @Override
+    public Optional<T> findByKey(String key) {
+        Chunk<T> chunk = chunkOf(key);
+        int pos = positionIn(chunk, key);
+        return pos < 0 ? Optional.empty() : Optional.of(chunk.get(pos));
+    }
+
+    /**
+     * @param key      khóa của phần tử cần thay.
+     * @param newValue giá trị mới.
+     * @return true nếu có thay thế.
+     * @throws IllegalArgumentException nếu giá trị mới đổi sang một khóa đã tồn tại.
+     */
+    @Override
+    public boolean replaceByKey(String key, T newValue) {
+        Chunk<T> chunk = chunkOf(key);
+        int pos = positionIn(chunk, key);
+        if (pos < 0) {
+            return false;
+        }
+        set(chunk, pos, newValue);
+        return true;
+    }
+
+    /**
+     * @param key khóa cần xoá.
+     * @return phần tử bị xoá hoặc null nếu không có.
+     */
+    @Override
+    public T removeByKey(String key) {
+        Chunk<T> chunk = chunkOf(key);
+        int pos = positionIn(chunk, key);
+        if (pos < 0) {
+            return null;
+        }
+        T item = chunk.get(pos);
+        removeAt(chunk, pos);
+        return item;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Duyệt trực tiếp trên mảng của từng khối, không qua Iterator.
+     *
+     * @param action thao tác áp dụng cho từng phần tử.
+     */
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        for (Chunk<T> chunk = head; chunk != null; chunk = chunk.next) {
+            for (int i = 0; i < chunk.count; i++) {
+                action.accept(chunk.get(i));
+            }
+        }
+    }
+
+    /**
+     * @return iterator tuần tự qua từng khối rồi từng ô trong khối.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private Chunk<T> chunk = head;
+            private int pos;
+
+            @Override
+            public boolean hasNext() {
+                while (chunk != null && pos >= chunk.count) {
+                    chunk = chunk.next;
+                    pos = 0;
+                }
+                return chunk != null;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return chunk.get(pos++);
+            }
+        };
+    }
+
+    /**
+     * Spliterator tách theo ranh giới khối: nửa đầu các khối còn lại được giao cho
+     * spliterator mới mà không cần chép phần tử ra mảng.
+     *
+     * @return spliterator ORDERED | SIZED | SUBSIZED.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return new ChunkSpliterator<>(head, 0, null, size, chunkCapacity);
+    }
+
+    /**
+     * Duyệt đoạn khối [chunk, end) bắt đầu từ vị trí pos trong khối đầu.
+     */
+    private static final class ChunkSpliterator<T> implements Spliterator<T> {
+        private Chunk<T> chunk;
+        private int pos;
+        private final Chunk<T> end;
+        private long remaining;
+        private final int chunkCapacity;
+
+        private ChunkSpliterator(Chunk<T> chunk, int pos, Chunk<T> end, long remaining, int chunkCapacity) {
+            this.chunk = chunk;
+            this.pos = pos;
+            this.end = end;
+            this.remaining = remaining;
+            this.chunkCapacity = chunkCapacity;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (chunk != end && pos >= chunk.count) {
+                chunk = chunk.next;
+                pos = 0;
+            }
+            if (chunk == end) {
+                return false;
+            }
+            remaining--;
+            action.accept(chunk.get(pos++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            for (; chunk != end; chunk = chunk.next, pos = 0) {
+                for (; pos < chunk.count; pos++) {
+                    action.accept(chunk.get(pos));
+                }
+            }
+            remaining = 0;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (remaining < 2L * chunkCapacity) {
+                return null;
+            }
+            long half = remaining / 2;
+            long taken = chunk.count - pos;
+            Chunk<T> mid = chunk.next;
+            while (taken < half && mid != end) {
+                taken += mid.count;
+                mid = mid.next;
+            }
+            if (mid == end) {
+                return null;
+            }
+            Spliterator<T> prefix = new ChunkSpliterator<>(chunk, pos, mid, taken, chunkCapacity);
+            chunk = mid;
+            pos = 0;
+            remaining -= taken;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED;
+        }
+    }
+
+    /**
+     * Xoá phần tử tại vị trí trong khối; nếu khối còn dưới nửa thì mượn hoặc gộp khối sau.
+     * Không bao giờ cần khối đứng trước nên vẫn giữ cấu trúc liên kết đơn.
+     *
+     * @param chunk khối chứa phần tử.
+     * @param pos   vị trí trong khối.
+     */
+    private void removeAt(Chunk<T> chunk, int pos) {
+        if (chunkIndex != null) {
+            chunkIndex.remove(keyOf(chunk.get(pos)));
+        }
+        System.arraycopy(chunk.items, pos + 1, chunk.items, pos, chunk.count - pos - 1);
+        chunk.items[--chunk.count] = null;
+        size--;
+        if (size == 0) {
+            clear();
+            return;
+        }
+        Chunk<T> next = chunk.next;
+        if (chunk.count >= chunkCapacity / 2 || next == null) {
+            return;
+        }
+        if (chunk.count + next.count <= chunkCapacity) {
+            moveItems(next, 0, chunk, next.count);
+            chunk.next = next.next;
+            if (next == tail) {
+                tail = chunk;
+            }
+        } else {
+            moveItems(next, 0, chunk, 1);
+            System.arraycopy(next.items, 1, next.items, 0, next.count - 1);
+            next.items[--next.count] = null;
+        }
+    }
+
+    /**
+     * Chuyển {@code n} phần tử từ đầu khối nguồn sang cuối khối đích và cập nhật chỉ mục.
+     */
+    private void moveItems(Chunk<T> from, int fromPos, Chunk<T> to, int n) {
+        System.arraycopy(from.items, fromPos, to.items, to.count, n);
+        if (chunkIndex != null) {
+            for (int i = to.count; i < to.count + n; i++) {
+                chunkIndex.put(keyOf(to.get(i)), to);
+            }
+        }
+        to.count += n;
+    }
+
+    /**
+     * Ghi giá trị mới vào ô, đổi khóa trong chỉ mục nếu khóa thay đổi.
+     */
+    private void set(Chunk<T> chunk, int pos, T newValue) {
+        if (chunkIndex != null) {
+            String oldKey = keyOf(chunk.get(pos));
+            String newKey = keyOf(newValue);
+            if (!oldKey.equals(newKey)) {
+                if (chunkIndex.containsKey(newKey)) {
+                    throw new IllegalArgumentException("Duplicate key: " + keyExtractor.apply(newValue));
+                }
+                chunkIndex.remove(oldKey);
+                chunkIndex.put(newKey, chunk);
+            }
+        }
+        chunk.items[pos] = newValue;
+    }
+
+    private Chunk<T> chunkOf(String key) {
+        requireIndex();
+        return chunkIndex.get(normalize(key));
+    }
+
+    /**
+     * Tìm vị trí của khóa trong khối (tối đa chunkCapacity phép so sánh).
+     *
+     * @return vị trí hoặc -1 nếu không có.
+     */
+    private int positionIn(Chunk<T> chunk, String key) {
+        if (chunk == null) {
+            return -1;
+        }
+        for (int i = 0; i < chunk.count; i++) {
+            if (keyExtractor.apply(chunk.get(i)).equalsIgnoreCase(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void requireIndex() {
+        if (chunkIndex == null) {
+            throw new IllegalStateException("List was created without a key extractor");
+        }
+    }
+
+    private String keyOf(T data) {
+        return normalize(keyExtractor.apply(data));
+    }
+
+    private static String normalize(String key) {
+        return key.toLowerCase(Locale.ROOT);
+    }
+}